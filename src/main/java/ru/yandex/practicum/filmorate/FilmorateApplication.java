@@ -2,9 +2,11 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /** Main-класс для запуска приложения */
 @SpringBootApplication
+@EnableScheduling
 public class FilmorateApplication {
 
     public static void main(String[] args) {
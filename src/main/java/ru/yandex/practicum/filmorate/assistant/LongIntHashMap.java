@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.assistant;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица с ключами long и значениями int на примитивных массивах (открытая адресация, линейное
+ * пробирование), без упаковки ключей и значений в объекты. Для отсутствующего ключа возвращается 0.
+ * Класс не потокобезопасен.
+ */
+public class LongIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Метод возвращает значение по ключу
+     *
+     * @param key ключ
+     * @return возвращает значение или 0, если ключа нет
+     */
+    public int get(long key) {
+        int index = find(key);
+        return index < 0 ? 0 : values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public void put(long key, int value) {
+        int index = slot(key);
+        if (!used[index]) {
+            used[index] = true;
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+        if (size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    /**
+     * Метод прибавляет к значению по ключу delta (отсутствующее значение считается равным 0)
+     *
+     * @param key   ключ
+     * @param delta прибавляемое значение
+     * @return возвращает новое значение
+     */
+    public int addTo(long key, int delta) {
+        int value = get(key) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Метод передает все пары ключ-значение обработчику
+     *
+     * @param consumer обработчик пар
+     */
+    public void forEach(LongIntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int index = slot(key);
+        return used[index] ? index : -1;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length << 1];
+        values = new int[oldKeys.length << 1];
+        used = new boolean[oldKeys.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Обработчик пары ключ-значение
+     */
+    @FunctionalInterface
+    public interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.assistant;
+
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица с ключами long на примитивном массиве (открытая адресация, линейное пробирование), без упаковки
+ * ключей в объекты. При удалении следующие записи цепочки сдвигаются назад, поэтому таблица не копит
+ * удаленные ячейки. Класс не потокобезопасен.
+ *
+ * @param <V> тип значений
+ */
+public class LongObjectHashMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Метод возвращает значение по ключу
+     *
+     * @param key ключ
+     * @return возвращает значение или null, если ключа нет
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[slot(key)];
+    }
+
+    public boolean containsKey(long key) {
+        return values[slot(key)] != null;
+    }
+
+    /**
+     * Метод кладет значение по ключу
+     *
+     * @param key   ключ
+     * @param value значение, не null
+     * @return возвращает предыдущее значение или null, если ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int index = slot(key);
+        V previous = (V) values[index];
+        keys[index] = key;
+        values[index] = value;
+        if (previous == null && ++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        return previous;
+    }
+
+    /**
+     * Метод удаляет значение по ключу
+     *
+     * @param key ключ
+     * @return возвращает удаленное значение или null, если ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int index = slot(key);
+        V previous = (V) values[index];
+        if (previous == null) {
+            return null;
+        }
+        values[index] = null;
+        size--;
+        int next = (index + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                values[next] = null;
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Метод передает все значения обработчику
+     *
+     * @param consumer обработчик значений
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new Object[oldKeys.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.assistant;
+
+import java.util.Arrays;
+
+/**
+ * Класс с операциями над отсортированными по возрастанию массивами идентификаторов без повторов.
+ * Массивы не изменяются: операции вставки и удаления возвращают новый массив.
+ */
+public final class SortedIds {
+    public static final long[] EMPTY = new long[0];
+
+    private SortedIds() {
+    }
+
+    public static boolean contains(long[] ids, long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * Метод добавляет идентификатор в массив
+     *
+     * @param ids массив идентификаторов
+     * @param id  добавляемый идентификатор
+     * @return возвращает новый массив или тот же массив, если идентификатор уже есть
+     */
+    public static long[] insert(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        index = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        result[index] = id;
+        System.arraycopy(ids, index, result, index + 1, ids.length - index);
+        return result;
+    }
+
+    /**
+     * Метод удаляет идентификатор из массива
+     *
+     * @param ids массив идентификаторов
+     * @param id  удаляемый идентификатор
+     * @return возвращает новый массив или тот же массив, если идентификатора нет
+     */
+    public static long[] remove(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Метод возвращает идентификаторы первого массива, которых нет во втором
+     *
+     * @param ids     массив идентификаторов
+     * @param exclude исключаемые идентификаторы
+     * @return возвращает отсортированный массив разности
+     */
+    public static long[] difference(long[] ids, long[] exclude) {
+        long[] result = new long[ids.length];
+        int size = 0;
+        int j = 0;
+        for (long id : ids) {
+            while (j < exclude.length && exclude[j] < id) {
+                j++;
+            }
+            if (j == exclude.length || exclude[j] != id) {
+                result[size++] = id;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Метод возвращает идентификаторы, которые есть в обоих массивах
+     *
+     * @param ids   массив идентификаторов
+     * @param other второй массив идентификаторов
+     * @return возвращает отсортированный массив пересечения
+     */
+    public static long[] intersect(long[] ids, long[] other) {
+        long[] result = new long[Math.min(ids.length, other.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids.length && j < other.length) {
+            if (ids[i] < other[j]) {
+                i++;
+            } else if (ids[i] > other[j]) {
+                j++;
+            } else {
+                result[size++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
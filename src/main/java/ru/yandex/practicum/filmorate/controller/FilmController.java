@@ -1,12 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.SortBy;
 import ru.yandex.practicum.filmorate.service.FilmDbService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +30,10 @@ public class FilmController {
      * Поле сервис
      */
     private final FilmDbService filmService;
+    /**
+     * Поле для сериализации фильмов при потоковой выдаче
+     */
+    private final ObjectMapper objectMapper;
 
     /**
      * Добавляет фильм в хранилище.
@@ -51,7 +62,7 @@ public class FilmController {
      */
     @DeleteMapping("{id}")
     public void deleteFilm(@PathVariable Long id) {
-        filmService.getFilmStorage().deleteFilm(id);
+        filmService.deleteFilm(id);
     }
 
     /**
@@ -77,13 +88,42 @@ public class FilmController {
     }
 
     /**
-     * Запрос фильмов
+     * Запрос фильмов. Без параметров возвращает весь каталог, с параметрами after и/или limit - страницу фильмов,
+     * упорядоченных по идентификатору.
      *
+     * @param after идентификатор последнего фильма предыдущей страницы (не обязательный параметр)
+     * @param limit размер страницы (не обязательный параметр)
      * @return возвращает коллекцию фильмов
      */
     @GetMapping
-    public Collection<Film> getFilms() {
-        return filmService.getFilms();
+    public Collection<Film> getFilms(@RequestParam Optional<Long> after,
+                                     @RequestParam Optional<Integer> limit) {
+        if (after.isEmpty() && limit.isEmpty()) {
+            return filmService.getFilms();
+        }
+        return filmService.getFilmsPage(after.orElse(0L), limit.orElse(FilmDbService.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Потоковая выдача всех фильмов. Фильмы записываются в ответ постранично по мере чтения из БД,
+     * поэтому расход памяти не зависит от размера каталога.
+     *
+     * @return возвращает JSON-массив фильмов
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().writeValuesAsArray(out)) {
+                filmService.streamFilms(film -> {
+                    try {
+                        writer.write(film);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
@@ -64,18 +64,24 @@ public class ReviewController {
     }
 
     /**
-     * Получение всех отзывов по идентификатору фильма, если фильм не указан то все. Если кол-во не указано, то 10
+     * Получение всех отзывов по идентификатору фильма, если фильм не указан то все. Если кол-во не указано, то 10.
+     * Отзывы упорядочены по убыванию полезности и возрастанию идентификатора; чтобы получить следующую страницу,
+     * передаются полезность и идентификатор последнего отзыва предыдущей страницы
      *
      * @param filmId идентификатор фильма
      * @param count количество получаемых отзывов, по дефолту значение 10
+     * @param afterUseful полезность последнего отзыва предыдущей страницы (не обязательный параметр)
+     * @param afterId идентификатор последнего отзыва предыдущей страницы (не обязательный параметр)
      * @return возвращает список отзывов
      */
     @GetMapping
     public List<Review> getReviews(
             @RequestParam(name = "filmId", defaultValue = "-1", required = false) Long filmId,
-            @RequestParam(name = "count", defaultValue = "10", required = false) int count
+            @RequestParam(name = "count", defaultValue = "10", required = false) int count,
+            @RequestParam(name = "afterUseful", required = false) Integer afterUseful,
+            @RequestParam(name = "afterId", required = false) Integer afterId
     ) {
-        return reviewService.getReviews(filmId, count);
+        return reviewService.getReviews(filmId, afterUseful, afterId, count);
     }
 
     /**
@@ -1,15 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserDbService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 
 /**
@@ -23,6 +33,10 @@ public class UserController {
      * Поле сервис
      */
     private final UserDbService userService;
+    /**
+     * Поле для сериализации событий при потоковой выдаче
+     */
+    private final ObjectMapper objectMapper;
 
     /**
      * Добавляет пользователя в хранилище.
@@ -133,8 +147,76 @@ public class UserController {
         return userService.getRecommendations(id);
     }
 
+    /**
+     * Возвращает ленту событий пользователя. Без параметров возвращает всю ленту, с параметрами after и/или
+     * limit - страницу событий по возрастанию id события.
+     *
+     * @param id    id пользователя.
+     * @param after id последнего события предыдущей страницы (не обязательный параметр).
+     * @param limit размер страницы (не обязательный параметр).
+     * @return возвращает события ленты.
+     */
     @GetMapping("/{id}/feed")
-    public Collection<Feed> getFeed(@PathVariable Long id) {
-        return userService.getFeeds(id);
+    public Collection<Feed> getFeed(@PathVariable Long id,
+                                    @RequestParam Optional<Long> after,
+                                    @RequestParam Optional<Integer> limit) {
+        if (after.isEmpty() && limit.isEmpty()) {
+            return userService.getFeeds(id);
+        }
+        return userService.getFeedsPage(id, after.orElse(0L), limit.orElse(UserDbService.MAX_FEED_PAGE_SIZE));
+    }
+
+    /**
+     * Возвращает ленту активности друзей пользователя от новых событий к старым.
+     *
+     * @param id     id пользователя.
+     * @param before id события, более старые события которого попадают в страницу (не обязательный параметр).
+     * @param limit  размер страницы (не обязательный параметр).
+     * @return возвращает события друзей.
+     */
+    @GetMapping("/{id}/feed/friends")
+    public List<Feed> getFriendsFeed(@PathVariable Long id,
+                                     @RequestParam Optional<Long> before,
+                                     @RequestParam Optional<Integer> limit) {
+        return userService.getFriendsFeed(id, before.orElse(Long.MAX_VALUE),
+                limit.orElse(UserDbService.MAX_FEED_PAGE_SIZE));
+    }
+
+    /**
+     * Подписка на новые события ленты пользователя: события приходят как server-sent events
+     * по мере их записи в ленту.
+     *
+     * @param id id пользователя.
+     * @return возвращает поток событий.
+     */
+    @GetMapping(value = "/{id}/feed/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToFeed(@PathVariable Long id) {
+        return userService.subscribeToFeed(id);
+    }
+
+    /**
+     * Потоковая выдача всей ленты событий пользователя: события читаются из БД страницами и сразу
+     * записываются в ответ, не накапливаясь в памяти.
+     *
+     * @param id id пользователя.
+     * @return возвращает JSON-массив событий.
+     */
+    @GetMapping("/{id}/feed/stream")
+    public ResponseEntity<StreamingResponseBody> streamFeed(@PathVariable Long id) {
+        if (!userService.isContains(id)) {
+            throw new NotFoundException(String.format("Пользователя с id %d не существует", id));
+        }
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().writeValuesAsArray(out)) {
+                userService.streamFeeds(id, feed -> {
+                    try {
+                        writer.write(feed);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Класс-модель снимка рекомендаций пользователя со свойствами <b>userId<b/>, <b>similarUserId<b/>,
+ * <b>filmIds<b/>, <b>computedAt<b/>.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Recommendation {
+    /**
+     * Поле идентификатор пользователя
+     */
+    private Long userId;
+    /**
+     * Поле идентификатор пользователя с наибольшим количеством общих лайков или -1, если такого нет
+     */
+    private Long similarUserId;
+    /**
+     * Поле с идентификаторами рекомендуемых фильмов
+     */
+    private List<Long> filmIds;
+    /**
+     * Поле времени расчета рекомендаций
+     */
+    private LocalDateTime computedAt;
+}
@@ -5,7 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.cache.FilmCache;
 import ru.yandex.practicum.filmorate.storage.dao.director.DirectorDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.util.List;
@@ -23,10 +26,24 @@ public class DirectorDbService {
      * Поле для доступа к операциям сущностей режиссеров
      */
     private final DirectorDao directorDao;
+    /**
+     * Поле с хранилищем фильмов, из фильмов которого удаляются режиссеры
+     */
+    private final FilmStorage filmStorage;
+    /**
+     * Поле с поисковым индексом фильмов, содержащим имена режиссеров
+     */
+    private final FilmSearchIndex searchIndex;
+    /**
+     * Поле с кэшем фильмов, в которых хранятся данные режиссеров
+     */
+    private final FilmCache filmCache;
 
     public Director addDirector(Director director) {
         Validation.validationDirector(director);
-        return directorDao.addDirector(director);
+        Director thisDirector = directorDao.addDirector(director);
+        searchIndex.putDirector(thisDirector);
+        return thisDirector;
     }
 
     public Director updateDirector(Director director) {
@@ -34,7 +51,10 @@ public class DirectorDbService {
         if (!directorDao.isContains(director.getId())) {
             throw new NotFoundException(format("Режиссер с идентификатором %d не найден", director.getId()));
         }
-        return directorDao.updateDirectorData(director);
+        Director thisDirector = directorDao.updateDirectorData(director);
+        searchIndex.putDirector(thisDirector);
+        filmCache.clear();
+        return thisDirector;
     }
 
     public Director getDirectorById(Integer id) {
@@ -45,6 +65,9 @@ public class DirectorDbService {
     public void deleteDirectorById(Integer id) {
         idValidation(id);
         directorDao.deleteDirectorById(id);
+        filmStorage.deleteDirector(id);
+        searchIndex.removeDirector(id);
+        filmCache.clear();
     }
 
     public List<Director> getDirectors() {
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.dao.feed.FeedListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Класс-сервис подписок на ленту событий пользователя через server-sent events. Подписка - это асинхронный
+ * ответ {@link SseEmitter}, который не занимает поток, пока событий нет. Записанные в ленту события попадают
+ * в очередь каждого подписчика и рассылаются небольшим пулом потоков: у подписчика одновременно работает
+ * не больше одной задачи отправки, поэтому его события приходят в порядке записи, а медленный клиент
+ * занимает один поток пула и не задерживает остальных подписчиков. Подписчик, в очереди которого накопилось
+ * больше заданного количества событий, отключается.
+ */
+@Slf4j
+@Service
+public class FeedSubscriptionService implements FeedListener {
+    private final long timeoutMillis;
+    private final int maxBacklog;
+    private final ExecutorService dispatcher;
+    private final Map<Long, Set<Subscriber>> subscriptions = new ConcurrentHashMap<>();
+
+    public FeedSubscriptionService(@Value("${filmorate.feed.sse-timeout-ms:1800000}") long timeoutMillis,
+                                   @Value("${filmorate.feed.sse-threads:4}") int threads,
+                                   @Value("${filmorate.feed.sse-max-backlog:1000}") int maxBacklog) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxBacklog = maxBacklog;
+        this.dispatcher = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Метод создает подписку на новые события ленты пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return возвращает поток server-sent events
+     */
+    public SseEmitter subscribe(Long userId) {
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(timeoutMillis));
+        Set<Subscriber> subscribers = subscriptions.compute(userId, (key, current) -> {
+            Set<Subscriber> result = current == null ? ConcurrentHashMap.newKeySet() : current;
+            result.add(subscriber);
+            return result;
+        });
+        Runnable remove = () -> unsubscribe(subscriber);
+        subscriber.emitter.onCompletion(remove);
+        subscriber.emitter.onTimeout(remove);
+        subscriber.emitter.onError(exception -> remove.run());
+        log.debug("Подписка на ленту пользователя {}, подписок пользователя: {}", userId, subscribers.size());
+        return subscriber.emitter;
+    }
+
+    /**
+     * Метод передает записанные события в очереди подписчиков лент их авторов
+     *
+     * @param feeds события с присвоенными идентификаторами
+     */
+    @Override
+    public void onFeeds(List<Feed> feeds) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        for (Feed feed : feeds) {
+            for (Subscriber subscriber : subscriptions.getOrDefault(feed.getUserId(), Collections.emptySet())) {
+                if (subscriber.offer(feed)) {
+                    dispatcher.execute(() -> drain(subscriber));
+                }
+            }
+        }
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Метод закрывает подписки при остановке приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        subscriptions.values().forEach(subscribers ->
+                subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscriptions.clear();
+    }
+
+    private void drain(Subscriber subscriber) {
+        Feed feed;
+        while ((feed = subscriber.poll()) != null) {
+            try {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(feed.getEventId()))
+                        .name("feed")
+                        .data(feed));
+            } catch (IOException | IllegalStateException exception) {
+                log.debug("Подписчик ленты пользователя {} отключен: {}", subscriber.userId, exception.getMessage());
+                unsubscribe(subscriber);
+                subscriber.emitter.completeWithError(exception);
+                return;
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        subscriptions.computeIfPresent(subscriber.userId, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * Подписчик с очередью еще не отправленных событий
+     */
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Deque<Feed> backlog = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Метод добавляет событие в очередь подписчика. Если очередь переполнена, подписчик отключается.
+         *
+         * @return возвращает true, если для подписчика нужно запустить задачу отправки
+         */
+        private boolean offer(Feed feed) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (backlog.size() < maxBacklog) {
+                    backlog.add(feed);
+                    if (sending) {
+                        return false;
+                    }
+                    sending = true;
+                    return true;
+                }
+            }
+            log.debug("Подписчик ленты пользователя {} не успевает получать события и отключен", userId);
+            unsubscribe(this);
+            emitter.complete();
+            return false;
+        }
+
+        private synchronized Feed poll() {
+            Feed feed = closed ? null : backlog.poll();
+            if (feed == null) {
+                sending = false;
+            }
+            return feed;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            backlog.clear();
+        }
+    }
+}
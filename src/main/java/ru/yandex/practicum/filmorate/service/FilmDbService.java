@@ -1,46 +1,61 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.assistant.EventType;
 import ru.yandex.practicum.filmorate.assistant.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.SortBy;
+import ru.yandex.practicum.filmorate.storage.cache.FilmCache;
 import ru.yandex.practicum.filmorate.storage.dao.director.DirectorDao;
 import ru.yandex.practicum.filmorate.storage.dao.feed.FeedStorage;
-import ru.yandex.practicum.filmorate.storage.dao.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmHydrator;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.dao.genre.GenreDao;
 import ru.yandex.practicum.filmorate.storage.dao.like.LikeDao;
 import ru.yandex.practicum.filmorate.storage.dao.mpa.MpaDao;
-import ru.yandex.practicum.filmorate.storage.dao.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.storage.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.Set;
-import java.util.HashSet;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Класс-сервис с логикой для оперирования фильмами с хранилищами <b>filmDbStorage<b/> и <b>userDbStorage<b/>
  */
 @Getter
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class FilmDbService {
+    /**
+     * Максимальный размер страницы при постраничной выдаче фильмов
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
     /**
      * Поле с прошлой версией хранилища фильмов
      */
@@ -70,20 +85,52 @@ public class FilmDbService {
      * Поле для доступа к операциям с лентой событий.
      */
     private final FeedStorage feedStorage;
+    /**
+     * Поле для пакетного заполнения фильмов рейтингом, жанрами и режиссерами
+     */
+    private final FilmHydrator filmHydrator;
+    /**
+     * Поле с индексом популярности фильмов
+     */
+    private final PopularityIndex popularityIndex;
+    /**
+     * Поле с поисковым индексом фильмов
+     */
+    private final FilmSearchIndex searchIndex;
+    /**
+     * Поле с кэшем заполненных фильмов
+     */
+    private final FilmCache filmCache;
+    /**
+     * Поле с матрицей лайков для рекомендаций
+     */
+    private final LikeMatrix likeMatrix;
+    /**
+     * Поле с сервисом снимков рекомендаций
+     */
+    private final RecommendationService recommendationService;
 
     /**
      * Конструктор сервиса.
      *
-     * @see FilmDbService#FilmDbService(FilmDbStorage, UserDbStorage, GenreDao, MpaDao, LikeDao, DirectorDao, FeedStorage)
+     * @see FilmDbService#FilmDbService(FilmStorage, UserStorage, GenreDao, MpaDao, LikeDao, DirectorDao,
+     * FeedStorage, FilmHydrator, PopularityIndex, FilmSearchIndex, FilmCache, LikeMatrix,
+     * RecommendationService)
      */
     @Autowired
-    public FilmDbService(@Qualifier("FilmDbStorage") FilmDbStorage filmStorage,
-                         @Qualifier("UserDbStorage") UserDbStorage userStorage,
+    public FilmDbService(FilmStorage filmStorage,
+                         UserStorage userStorage,
                          GenreDao genreDao,
                          MpaDao mpaDao,
                          LikeDao likeDao,
                          DirectorDao directorDao,
-                         FeedStorage feedStorage) {
+                         FeedStorage feedStorage,
+                         FilmHydrator filmHydrator,
+                         PopularityIndex popularityIndex,
+                         FilmSearchIndex searchIndex,
+                         FilmCache filmCache,
+                         LikeMatrix likeMatrix,
+                         RecommendationService recommendationService) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.genreDao = genreDao;
@@ -91,51 +138,76 @@ public class FilmDbService {
         this.likeDao = likeDao;
         this.directorDao = directorDao;
         this.feedStorage = feedStorage;
+        this.filmHydrator = filmHydrator;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.filmCache = filmCache;
+        this.likeMatrix = likeMatrix;
+        this.recommendationService = recommendationService;
     }
 
     public void addLike(Long userId, Long filmId) {
         checker(userId, filmId);
-        likeDao.addLike(userId, filmId);
+        if (likeDao.addLike(userId, filmId)) {
+            popularityIndex.addLike(filmId);
+            likeMatrix.addLike(userId, filmId);
+            recommendationService.onLikeChanged(userId, filmId);
+        }
         log.info("Пользователь с id {} поставил лайк фильму с id {}", userId, filmId);
         feedStorage.addFeed(LocalDateTime.now(), userId, EventType.LIKE, Operation.ADD, filmId);
     }
 
     public void deleteLike(Long userId, Long filmId) {
         checker(userId, filmId);
-        likeDao.deleteLike(userId, filmId);
+        if (likeDao.deleteLike(userId, filmId)) {
+            popularityIndex.removeLike(filmId);
+            likeMatrix.removeLike(userId, filmId);
+            recommendationService.onLikeChanged(userId, filmId);
+        }
         log.info("Пользователь с id {} удалил лайк у фильма с id {}", userId, filmId);
         feedStorage.addFeed(LocalDateTime.now(), userId, EventType.LIKE, Operation.REMOVE, filmId);
     }
 
+    /**
+     * Удаляет все лайки пользователя, уменьшая счетчики лайков у фильмов. Вызывается перед удалением пользователя,
+     * так как каскадное удаление лайков в БД не обновляет счетчики.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void deleteLikesByUser(Long userId) {
+        List<Long> filmIds = likeDao.deleteLikesByUser(userId);
+        filmIds.forEach(popularityIndex::removeLike);
+        likeMatrix.removeUser(userId);
+        log.info("Удалены лайки пользователя с id {} у {} фильмов", userId, filmIds.size());
+    }
+
     /**
      * Возвращает топ фильмов по лайкам или по жанру, по году релиза фильма или жанру и году сразу.
+     * Рейтинг строится по индексу популярности в памяти, из БД загружаются только фильмы, попавшие в топ.
      *
      * @param count количество, из которого необходимо составить топ(по умолчанию значение равно 10).
      * @param genreId идентификатор жанра.
      * @param year год.
      */
     public List<Film> getPopularFilms(int count, Optional<Integer> genreId, Optional<Integer> year) {
+        List<Long> ids;
         if (genreId.isEmpty() && year.isEmpty()) {
             log.info("Запрос популярных фильмов с параметром - колличество {}.", count);
-            return getFilms().stream()
-                    .sorted(this::compare)
-                    .limit(count)
-                    .collect(Collectors.toList());
+            ids = popularityIndex.getTop(count);
         } else if (year.isEmpty()) {
             log.info("Запрос популярных фильмов с параметрами: колличество {}, жанр  {}", count, genreId.get());
             genreDao.getGenreById(genreId.get());
-            return filmStorage.getPopularFilmsByGenre(count, genreId.get()).stream()
-                .sorted(this::compare)
-                .collect(Collectors.toList());
+            ids = popularityIndex.getTopByGenre(count, genreId.get());
         } else if (genreId.isEmpty()) {
             log.info("Запрос популярных фильмов с параметрами: колличество {}, год  {}", count, year.get());
-            return filmStorage.getPopularFilmsByYear(count, year.get());
+            ids = popularityIndex.getTopByYear(count, year.get());
         } else {
             log.info("Запрос популярных фильмов с параметрами: колличество {}, жанр  {}, год  {}",
                 count, genreId.get(), year.get());
             genreDao.getGenreById(genreId.get());
-            return filmStorage.getPopularFilmsByGenreAndYear(count, genreId.get(), year.get());
+            ids = popularityIndex.getTopByGenreAndYear(count, genreId.get(), year.get());
         }
+        return getFilmsByIds(ids);
     }
 
     /**
@@ -146,16 +218,16 @@ public class FilmDbService {
      * @return возвращает список общих с другом фильмов с сортировкой по их популярности
      */
     public List<Film> getCommonFilms(Long userId, Long friendId) {
-        Collection<Film> listOfUserFilms = getFilmsByUser(userId);
-        Collection<Film> listOfFriendFilms = getFilmsByUser(friendId);
-        Set<Film> commonList = new HashSet<>(listOfUserFilms);
-        commonList.retainAll(listOfFriendFilms);
-        return new ArrayList<>(commonList);
-
+        List<Film> commonList = filmStorage.getCommonFilms(userId, friendId);
+        filmHydrator.sortByLikes(commonList);
+        filmHydrator.hydrate(commonList);
+        return commonList;
     }
 
+    @Transactional
     public Film addFilm(Film film) {
         Validation.validationFilm(film);
+        Mpa mpa = checkReferences(film);
         Film theFilm = filmStorage.addFilm(film);
         if (film.getGenres() != null) {
             genreDao.addGenres(theFilm.getId(), film.getGenres());
@@ -165,13 +237,17 @@ public class FilmDbService {
             directorDao.addDirectorsToFilm(theFilm.getId(), film.getDirectors());
             theFilm.setDirectors(directorDao.getDirectorsByFilm(theFilm.getId()));
         }
-        theFilm.setMpa(mpaDao.getMpaById(theFilm.getMpa().getId()));
+        theFilm.setMpa(mpa);
+        putToIndexes(theFilm);
         return theFilm;
     }
 
+    @Transactional
     public Film updateFilm(Film film) {
         Validation.validationFilm(film);
+        Mpa mpa = checkReferences(film);
         Film theFilm = filmStorage.updateFilm(film);
+        filmCache.evict(theFilm.getId());
         if (theFilm.getGenres() != null) {
             genreDao.updateGenres(theFilm.getId(), film.getGenres());
             theFilm.setGenres(filmStorage.getGenresByFilm(theFilm.getId()));
@@ -185,10 +261,27 @@ public class FilmDbService {
             directorDao.deleteDirectorsFromFilm(theFilm.getId());
             theFilm.setDirectors(new HashSet<>());
         }
-        theFilm.setMpa(mpaDao.getMpaById(theFilm.getMpa().getId()));
+        theFilm.setMpa(mpa);
+        putToIndexes(theFilm);
+        filmCache.evict(theFilm.getId());
         return theFilm;
     }
 
+    /**
+     * Метод удаления фильма по идентификатору
+     *
+     * @param id идентификатор удаляемого фильма
+     */
+    public void deleteFilm(Long id) {
+        filmStorage.deleteFilm(id);
+        filmCache.evict(id);
+        popularityIndex.removeFilm(id);
+        searchIndex.removeFilm(id);
+        recommendationService.onFilmRemoved(id);
+        likeMatrix.removeFilm(id);
+        log.info("Удален фильм с id {}", id);
+    }
+
     /**
      * Метод запроса коллекции всех фильмов
      *
@@ -196,10 +289,82 @@ public class FilmDbService {
      */
     public Collection<Film> getFilms() {
         Collection<Film> films = filmStorage.getFilms();
-        for (Film film : films) {
-            film.setGenres(filmStorage.getGenresByFilm(film.getId()));
-            film.setMpa(mpaDao.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorDao.getDirectorsByFilm(film.getId()));
+        filmHydrator.hydrate(films);
+        return films;
+    }
+
+    /**
+     * Метод запроса страницы фильмов. Страницы строятся по идентификатору фильма (keyset), поэтому стоимость
+     * запроса не зависит от того, насколько далеко от начала каталога находится страница.
+     *
+     * @param afterId идентификатор последнего фильма предыдущей страницы (0 для первой страницы)
+     * @param limit   размер страницы, не более {@link FilmDbService#MAX_PAGE_SIZE}
+     * @return возвращает список фильмов, упорядоченных по идентификатору
+     * @throws ValidationException генерирует ошибку 400 если передан неверный размер страницы.
+     */
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException(String.format("Размер страницы должен быть от 1 до %d", MAX_PAGE_SIZE));
+        }
+        List<Film> films = filmStorage.getFilmsPage(afterId, limit);
+        filmHydrator.hydrate(films);
+        return films;
+    }
+
+    /**
+     * Метод последовательно передает все фильмы каталога обработчику, загружая их страницами,
+     * так что в памяти одновременно находится не более одной страницы.
+     *
+     * @param consumer обработчик фильмов
+     */
+    public void streamFilms(Consumer<Film> consumer) {
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = getFilmsPage(afterId, MAX_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Метод запроса фильмов по списку идентификаторов. Фильмы берутся из кэша, отсутствующие в кэше
+     * загружаются из БД одной пачкой.
+     *
+     * @param ids идентификаторы фильмов
+     * @return возвращает заполненные фильмы в порядке переданных идентификаторов
+     */
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Film film = filmCache.get(id);
+            if (film != null) {
+                filmsById.put(id, film);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long version = filmCache.version();
+            List<Film> loaded = filmStorage.getFilmsByIds(missing);
+            filmHydrator.hydrate(loaded);
+            for (Film film : loaded) {
+                filmCache.put(film, version);
+                filmsById.put(film.getId(), film);
+            }
+        }
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
         }
         return films;
     }
@@ -212,12 +377,15 @@ public class FilmDbService {
      * @throws NotFoundException генерирует ошибку 404 если введен не верный id пользователя или фильма.
      */
     public Film getFilmById(Long id) {
-        Film film;
+        Film film = filmCache.get(id);
+        if (film != null) {
+            return film;
+        }
         try {
+            long version = filmCache.version();
             film = filmStorage.getFilmById(id);
-            film.setGenres(filmStorage.getGenresByFilm(id));
-            film.setMpa(mpaDao.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorDao.getDirectorsByFilm(film.getId()));
+            filmHydrator.hydrate(List.of(film));
+            filmCache.put(film, version);
             return film;
         } catch (EmptyResultDataAccessException exception) {
             throw new NotFoundException(String.format("Фильма с id %d не существует", id));
@@ -233,35 +401,84 @@ public class FilmDbService {
      */
     public Collection<Film> getFilmsByUser(Long id) {
         Collection<Film> films = filmStorage.getFilmsByUser(id);
-        for (Film film : films) {
-            film.setGenres(filmStorage.getGenresByFilm(film.getId()));
-            film.setMpa(mpaDao.getMpaById(film.getMpa().getId()));
-        }
+        filmHydrator.hydrate(films);
         return films;
     }
 
-    /**
-     * Метод для определения популярности фильма(компаратор), сравнивающий значения лайков у двух фильмов.
-     *
-     * @param film      фильм для сравнения
-     * @param otherFilm второй фильм для сравнения
-     */
-    private int compare(Film film, Film otherFilm) {
-        return Integer.compare(likeDao.checkLikes(otherFilm.getId()), likeDao.checkLikes(film.getId()));
-    }
-
     public List<Film> getDirectorsFilms(Integer directorId, SortBy sortBy) {
         List<Film> filmList;
         if (directorId != null && directorDao.isContains(directorId)) {
-            filmList = filmStorage.getDirectorFilms(directorId, sortBy).stream()
-                    .map(film -> getFilmById(film.getId()))
-                    .collect(Collectors.toList());
+            filmList = filmStorage.getDirectorFilms(directorId, sortBy);
+            filmHydrator.hydrate(filmList);
         } else {
             throw new NotFoundException("Данные о режиссере не найдены по идентификатору: " + directorId);
         }
         return filmList;
     }
 
+    /**
+     * Метод проверяет существование фильма: сначала по кэшу заполненных фильмов, затем запросом EXISTS
+     * без загрузки данных фильма.
+     *
+     * @param id идентификатор фильма
+     * @return возвращает true - если фильм найден, false - если не найден
+     */
+    public boolean isContains(Long id) {
+        return id != null && (filmCache.contains(id) || filmStorage.isContains(id));
+    }
+
+    /**
+     * Метод добавляет фильм в индексы популярности и поиска. Внутри транзакции фильм добавляется только после ее
+     * фиксации, чтобы при откате в индексах не остался фильм, которого нет в БД.
+     *
+     * @param film заполненный фильм
+     */
+    private void putToIndexes(Film film) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    popularityIndex.putFilm(film);
+                    searchIndex.putFilm(film);
+                }
+            });
+        } else {
+            popularityIndex.putFilm(film);
+            searchIndex.putFilm(film);
+        }
+    }
+
+    /**
+     * Метод проверяет, что рейтинг, жанры и режиссеры фильма существуют. Проверка выполняется до записи фильма,
+     * чтобы неверная ссылка не оставляла в хранилище фильм без связей.
+     *
+     * @param film фильм
+     * @return возвращает рейтинг фильма
+     * @throws NotFoundException генерирует ошибку 404 если рейтинга, жанра или режиссера не существует.
+     */
+    private Mpa checkReferences(Film film) {
+        Mpa mpa;
+        try {
+            mpa = mpaDao.getMpaById(film.getMpa().getId());
+        } catch (EmptyResultDataAccessException exception) {
+            throw new NotFoundException(String.format("Рейтинга с id %d не существует", film.getMpa().getId()));
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreDao.getGenreById(genre.getId());
+            }
+        }
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                if (director.getId() == null || !directorDao.isContains(director.getId())) {
+                    throw new NotFoundException(String.format("Режиссер с идентификатором %d не найден",
+                            director.getId()));
+                }
+            }
+        }
+        return mpa;
+    }
+
     /**
      * Метод для проверки пользователя и фильма на наличие в БД с последующей оценкой фильма
      *
@@ -269,32 +486,36 @@ public class FilmDbService {
      * @param filmId идентификатор фильма
      */
     private void checker(Long userId, Long filmId) {
-        if (userStorage.getUserById(userId) == null) {
+        if (userId == null || !userStorage.isContains(userId)) {
             throw new NotFoundException(String.format("Пользователя с id %d не существует", userId));
         }
 
-        if (filmStorage.getFilmById(filmId) == null) {
+        if (!isContains(filmId)) {
             throw new NotFoundException(String.format("Фильма с id %d не существует", filmId));
         }
     }
 
     /**
-     * поиск по названию фильмов и по режиссёру
+     * поиск по названию фильмов и по режиссёру. Поиск выполняется по индексу в памяти, из БД загружаются
+     * только найденные фильмы.
      *
      * @param query — текст для поиска,
      * @param by    — может принимать значения director (поиск по режиссёру), title (поиск по названию),
      *              либо оба значения через запятую при поиске одновременно и по режиссеру и по названию.
-     * @return возвращает список фильмов с количеством лайков (От большего к меньшему)
+     * @return возвращает список фильмов с количеством лайков (От большего к меньшему), при равном количестве
+     * лайков выше фильмы с более точным совпадением
      */
     public List<Film> getSearchResult(String query, String by) {
-        List<Film> listOfFilm = filmStorage.getSearchResult(query, by);
-        for (Film film : listOfFilm) {
-            film.setGenres(filmStorage.getGenresByFilm(film.getId()));
-            film.setMpa(mpaDao.getMpaById(film.getMpa().getId()));
-            film.setDirectors(directorDao.getDirectorsByFilm(film.getId()));
-        }
-        return listOfFilm.stream()
-                .sorted(this::compare)
+        Set<String> params = new HashSet<>(Arrays.asList(by.toLowerCase().split(",")));
+        boolean byTitle = params.contains("title");
+        boolean byDirector = params.contains("director") || !byTitle;
+        Map<Long, Integer> found = searchIndex.search(query, byTitle, byDirector);
+        List<Long> ids = found.keySet().stream()
+                .sorted(Comparator.comparingInt((Long id) -> popularityIndex.getLikes(id)).reversed()
+                        .thenComparing(Comparator.comparingInt(found::get).reversed())
+                        .thenComparingLong(id -> id))
                 .collect(Collectors.toList());
+        log.info("По запросу '{}' ({}) найдено фильмов: {}", query, by, ids.size());
+        return getFilmsByIds(ids);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Recommendation;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.dao.recommendation.RecommendationDao;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс-сервис снимков рекомендаций. Рекомендации рассчитываются по {@link LikeMatrix} заранее и хранятся
+ * в памяти, поэтому запрос рекомендаций сводится к поиску готового снимка. Снимки также записываются в таблицу
+ * recommendations и читаются из нее при старте; schema.sql пересоздает таблицы при каждом запуске вместе
+ * с пользователями и лайками, поэтому снимки переживают перезапуск, только если БД не пересоздается
+ * (spring.sql.init.mode=never).
+ * Изменение лайка помечает устаревшими снимок пользователя, снимки зависящих от него пользователей
+ * и ограниченную выборку других лайкнувших фильм; снимки пересчитываются фоновой задачей или при первом
+ * запросе, а раз в заданный интервал пересчитываются снимки всех пользователей. Показатели устаревания
+ * периодически пишутся в лог.
+ */
+@Slf4j
+@Service
+public class RecommendationService {
+    private final LikeMatrix likeMatrix;
+    private final RecommendationDao recommendationDao;
+    /**
+     * Наибольшее количество других лайкнувших фильм, помечаемых устаревшими при изменении одного лайка
+     */
+    private final int likeFanout;
+    private final Map<Long, Recommendation> snapshots = new ConcurrentHashMap<>();
+    /**
+     * Пользователи, для которых пользователь-ключ выбран похожим: их рекомендации зависят от его лайков
+     */
+    private final Map<Long, Set<Long>> followers = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<Long> unsaved = ConcurrentHashMap.newKeySet();
+    private final AtomicLong maxServedAgeMillis = new AtomicLong();
+    /**
+     * Поле со статистикой обращений: попадание - выдан готовый снимок, промах - снимок рассчитан при запросе
+     */
+    @Getter
+    private final CacheStats stats = new CacheStats("recommendation");
+    /**
+     * Поле времени последнего фонового пересчета
+     */
+    @Getter
+    private volatile LocalDateTime lastRefreshAt;
+    /**
+     * Поле длительности последнего фонового пересчета в миллисекундах
+     */
+    @Getter
+    private volatile long lastRefreshMillis;
+
+    public RecommendationService(LikeMatrix likeMatrix,
+                                 RecommendationDao recommendationDao,
+                                 @Value("${filmorate.recommendations.like-fanout:100}") int likeFanout) {
+        this.likeMatrix = likeMatrix;
+        this.recommendationDao = recommendationDao;
+        this.likeFanout = likeFanout;
+    }
+
+    /**
+     * Метод загружает сохраненные снимки рекомендаций из БД
+     */
+    @PostConstruct
+    public void load() {
+        for (Recommendation recommendation : recommendationDao.getRecommendations()) {
+            snapshots.put(recommendation.getUserId(), recommendation);
+            follow(recommendation.getUserId(), recommendation.getSimilarUserId());
+        }
+        log.info("Загружены снимки рекомендаций: {}", snapshots.size());
+    }
+
+    /**
+     * Метод возвращает рекомендации пользователя из снимка. Если снимка нет или он устарел, рекомендации
+     * рассчитываются сразу.
+     *
+     * @param userId идентификатор пользователя
+     * @return возвращает идентификаторы рекомендуемых фильмов
+     */
+    public List<Long> getRecommendations(long userId) {
+        Recommendation snapshot = snapshots.get(userId);
+        if (snapshot == null || dirty.contains(userId)) {
+            stats.miss();
+            snapshot = compute(userId);
+        } else {
+            stats.hit();
+            long age = Duration.between(snapshot.getComputedAt(), LocalDateTime.now()).toMillis();
+            maxServedAgeMillis.accumulateAndGet(age, Math::max);
+        }
+        return snapshot.getFilmIds();
+    }
+
+    /**
+     * Метод помечает устаревшими снимки, которые зависят от лайка пользователя фильму: снимок самого
+     * пользователя, снимки пользователей, для которых он выбран похожим, и не больше likeFanout снимков
+     * других лайкнувших фильм (у них изменилось число общих лайков с пользователем). Остальные лайкнувшие
+     * обновятся при полном пересчете, поэтому лайк популярному фильму не стоит O(лайкнувших).
+     * Вызывается после изменения {@link LikeMatrix}.
+     *
+     * @param userId идентификатор пользователя
+     * @param filmId идентификатор фильма
+     */
+    public void onLikeChanged(long userId, long filmId) {
+        dirty.add(userId);
+        long[] users = likeMatrix.getUsers(filmId);
+        if (users.length <= likeFanout) {
+            for (long otherId : users) {
+                dirty.add(otherId);
+            }
+        } else {
+            int offset = ThreadLocalRandom.current().nextInt(users.length);
+            for (int i = 0; i < likeFanout; i++) {
+                dirty.add(users[(int) ((offset + (long) i * users.length / likeFanout) % users.length)]);
+            }
+        }
+        dirty.addAll(followers.getOrDefault(userId, Set.of()));
+    }
+
+    /**
+     * Метод помечает устаревшими снимки пользователей, лайкнувших удаляемый фильм.
+     * Вызывается до удаления фильма из {@link LikeMatrix}.
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void onFilmRemoved(long filmId) {
+        for (long userId : likeMatrix.getUsers(filmId)) {
+            dirty.add(userId);
+        }
+    }
+
+    /**
+     * Метод удаляет снимок пользователя и помечает устаревшими снимки, для которых он был выбран похожим
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void removeUser(long userId) {
+        Recommendation snapshot = snapshots.remove(userId);
+        if (snapshot != null) {
+            unfollow(userId, snapshot.getSimilarUserId());
+        }
+        dirty.remove(userId);
+        unsaved.remove(userId);
+        Set<Long> users = followers.remove(userId);
+        if (users != null) {
+            dirty.addAll(users);
+        }
+        recommendationDao.deleteRecommendations(userId);
+    }
+
+    /**
+     * Метод пересчитывает устаревшие снимки и сохраняет новые снимки в БД
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-interval-ms:5000}")
+    public void refreshDirty() {
+        if (dirty.isEmpty() && unsaved.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (Long userId : new ArrayList<>(dirty)) {
+            compute(userId);
+            count++;
+        }
+        save();
+        finishRefresh(start, count);
+    }
+
+    /**
+     * Метод пересчитывает снимки всех пользователей, у которых есть лайки
+     */
+    @Scheduled(initialDelayString = "${filmorate.recommendations.full-refresh-delay-ms:0}",
+            fixedDelayString = "${filmorate.recommendations.full-refresh-interval-ms:3600000}")
+    public void refreshAll() {
+        long start = System.currentTimeMillis();
+        List<Long> userIds = likeMatrix.getUserIds();
+        for (Long userId : userIds) {
+            compute(userId);
+        }
+        save();
+        finishRefresh(start, userIds.size());
+    }
+
+    /**
+     * Метод пишет в лог показатели устаревания снимков: количество ожидающих пересчета, наибольший возраст
+     * выданного снимка за интервал, время и длительность последнего пересчета и статистику обращений
+     */
+    @Scheduled(initialDelayString = "${filmorate.recommendations.metrics-log-interval-ms:60000}",
+            fixedDelayString = "${filmorate.recommendations.metrics-log-interval-ms:60000}")
+    public void logStaleness() {
+        log.info("Рекомендации: снимков {}, ожидают пересчета {}, наибольший возраст выданного снимка {} мс, " +
+                        "последний пересчет {} за {} мс, {}", snapshots.size(), dirty.size(),
+                maxServedAgeMillis.getAndSet(0), lastRefreshAt, lastRefreshMillis, stats);
+    }
+
+    /**
+     * Метод возвращает количество устаревших снимков, ожидающих пересчета
+     *
+     * @return возвращает количество пользователей
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Метод возвращает наибольший возраст снимка, выданного с момента последней записи показателей в лог
+     *
+     * @return возвращает возраст в миллисекундах
+     */
+    public long getMaxServedAgeMillis() {
+        return maxServedAgeMillis.get();
+    }
+
+    private Recommendation compute(long userId) {
+        dirty.remove(userId);
+        long similarUserId = likeMatrix.findSimilarUser(userId);
+        Recommendation recommendation = new Recommendation(userId, similarUserId,
+                likeMatrix.getRecommendations(userId, similarUserId), LocalDateTime.now());
+        Recommendation previous = snapshots.put(userId, recommendation);
+        if (previous != null) {
+            unfollow(userId, previous.getSimilarUserId());
+        }
+        follow(userId, similarUserId);
+        unsaved.add(userId);
+        return recommendation;
+    }
+
+    private void save() {
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (Long userId : new ArrayList<>(unsaved)) {
+            unsaved.remove(userId);
+            Recommendation recommendation = snapshots.get(userId);
+            if (recommendation != null) {
+                recommendations.add(recommendation);
+            }
+        }
+        recommendationDao.saveRecommendations(recommendations);
+    }
+
+    private void finishRefresh(long start, int count) {
+        lastRefreshAt = LocalDateTime.now();
+        lastRefreshMillis = System.currentTimeMillis() - start;
+        log.debug("Пересчитаны рекомендации {} пользователей за {} мс, ожидают пересчета: {}", count,
+                lastRefreshMillis, dirty.size());
+    }
+
+    private void follow(long userId, long similarUserId) {
+        if (similarUserId >= 0) {
+            followers.computeIfAbsent(similarUserId, key -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    private void unfollow(long userId, long similarUserId) {
+        Set<Long> users = followers.get(similarUserId);
+        if (users != null) {
+            users.remove(userId);
+        }
+    }
+}
@@ -2,10 +2,13 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.assistant.EventType;
 import ru.yandex.practicum.filmorate.assistant.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.dao.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.dao.film_reviews.FilmReviewDao;
@@ -22,6 +25,10 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class ReviewDbService {
+    /**
+     * Наибольший размер страницы отзывов.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
     /**
      * Поле для доступа к операциям отзывов.
      */
@@ -62,46 +69,89 @@ public class ReviewDbService {
     }
 
     public void deleteReviewById(Integer id) {
-        if (!reviewDao.isContains(id) || id == null) {
-            throw new NotFoundException("Отзыв не найден: пустой или неправильный идентификатор");
-        }
-        feedStorage.addFeed(LocalDateTime.now(), reviewDao.getReviewById(id).getUserId(), EventType.REVIEW,
+        Review review = getReviewById(id);
+        feedStorage.addFeed(LocalDateTime.now(), review.getUserId(), EventType.REVIEW,
                 Operation.REMOVE, id.longValue());
         reviewDao.deleteReviewById(id);
     }
 
     public Review getReviewById(Integer id) {
-        if (!reviewDao.isContains(id) || id == null) {
+        if (id == null) {
+            throw new NotFoundException("Отзыв не найден: пустой или неправильный идентификатор");
+        }
+        try {
+            return reviewDao.getReviewById(id);
+        } catch (EmptyResultDataAccessException exception) {
             throw new NotFoundException("Отзыв не найден: пустой или неправильный идентификатор");
         }
-        return reviewDao.getReviewById(id);
     }
 
-    public List<Review> getReviews(Long id, int count) {
-        return reviewDao.getReviews(id, count);
+    /**
+     * Метод возвращает страницу отзывов, упорядоченных по убыванию полезности и возрастанию идентификатора.
+     * Без курсора возвращается первая страница; следующая страница определяется последним отзывом предыдущей,
+     * поэтому глубокие страницы читаются по индексу так же быстро, как первая.
+     *
+     * @param id          идентификатор фильма, -1 - отзывы всех фильмов
+     * @param afterUseful полезность последнего отзыва предыдущей страницы, null - первая страница
+     * @param afterId     идентификатор последнего отзыва предыдущей страницы, null - первая страница
+     * @param count       размер страницы
+     * @return возвращает страницу отзывов
+     */
+    public List<Review> getReviews(Long id, Integer afterUseful, Integer afterId, int count) {
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException(String.format("Размер страницы должен быть от 1 до %d", MAX_PAGE_SIZE));
+        }
+        if ((afterUseful == null) != (afterId == null)) {
+            throw new ValidationException("Параметры afterUseful и afterId передаются вместе");
+        }
+        if (afterUseful == null) {
+            return reviewDao.getReviews(id, count);
+        }
+        return reviewDao.getReviewsPage(id, afterUseful, afterId, count);
     }
 
+    @Transactional
     public void addLikeToReview(Integer reviewId, Long userId) {
-        filmReview.addLikeToReview(reviewId, userId);
+        checkVote(reviewId, userId);
+        updateUseful(reviewId, filmReview.addLikeToReview(reviewId, userId));
     }
 
+    @Transactional
     public void addDislikeToReview(Integer reviewId, Long userId) {
-        filmReview.addDislikeToReview(reviewId, userId);
+        checkVote(reviewId, userId);
+        updateUseful(reviewId, filmReview.addDislikeToReview(reviewId, userId));
     }
 
+    @Transactional
     public void deleteLikeFromReview(Integer reviewId, Long userId) {
-        filmReview.deleteLikeFromReview(reviewId, userId);
+        updateUseful(reviewId, filmReview.deleteLikeFromReview(reviewId, userId));
     }
 
+    @Transactional
     public void deleteDislikeFromReview(Integer reviewId, Long userId) {
-        filmReview.deleteDislikeFromReview(reviewId, userId);
+        updateUseful(reviewId, filmReview.deleteDislikeFromReview(reviewId, userId));
+    }
+
+    private void checkVote(Integer reviewId, Long userId) {
+        if (!reviewDao.isContains(reviewId)) {
+            throw new NotFoundException("Отзыв не найден: пустой или неправильный идентификатор");
+        }
+        if (!userService.isContains(userId)) {
+            throw new NotFoundException("Не найден пользователь с идентификатором " + userId);
+        }
+    }
+
+    private void updateUseful(Integer reviewId, int delta) {
+        if (delta != 0) {
+            reviewDao.updateUseful(reviewId, delta);
+        }
     }
 
     private void checker(Long filmId, Long userId) {
-        if (filmId == null || filmService.getFilmById(filmId) == null) {
+        if (!filmService.isContains(filmId)) {
             throw new NotFoundException("Не найден фильм c идентификатором " + filmId);
         }
-        if (userId == null || userService.getUserById(userId) == null) {
+        if (!userService.isContains(userId)) {
             throw new NotFoundException("Не найден пользователь с идентификатором " + userId);
         }
     }
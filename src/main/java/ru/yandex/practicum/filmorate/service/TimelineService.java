@@ -0,0 +1,270 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.dao.feed.FeedListener;
+import ru.yandex.practicum.filmorate.storage.dao.friend.FriendDao;
+import ru.yandex.practicum.filmorate.storage.dao.timeline.TimelineDao;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс-сервис лент активности друзей. Каждое записанное событие сразу раскладывается в ленты подписчиков
+ * автора (таблица timeline и кольцевые буферы последних событий в памяти), поэтому чтение ленты не зависит
+ * от количества друзей. События пользователей с очень большим количеством подписчиков не раскладываются,
+ * а подмешиваются при чтении из их собственных лент. Раскладка выполняется отдельным потоком, чтобы не задерживать
+ * запись ленты. В памяти хранятся буферы ограниченного количества пользователей (вытесняются давно не читавшие
+ * ленту) с ограниченным временем жизни.
+ */
+@Slf4j
+@Service
+public class TimelineService implements FeedListener {
+    private final FriendDao friendDao;
+    private final TimelineDao timelineDao;
+    private final int memorySize;
+    private final int celebrityThreshold;
+    private final int maxUsers;
+    private final long ttlMillis;
+    private final Map<Long, Ring> timelines;
+    /**
+     * Поле с пользователями, чьи буферы сейчас загружаются из БД. Если во время загрузки в ленту пользователя
+     * записано событие или пользователь удален, загрузка помечается устаревшей и буфер в память не попадает;
+     * загрузки других пользователей это не затрагивает
+     */
+    private final Map<Long, Loading> loading = new HashMap<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+
+    public TimelineService(FriendDao friendDao,
+                           TimelineDao timelineDao,
+                           @Value("${filmorate.timeline.memory-size:1000}") int memorySize,
+                           @Value("${filmorate.timeline.celebrity-threshold:1000}") int celebrityThreshold,
+                           @Value("${filmorate.timeline.max-users:10000}") int maxUsers,
+                           @Value("${filmorate.timeline.ttl-seconds:600}") long ttlSeconds) {
+        this.friendDao = friendDao;
+        this.timelineDao = timelineDao;
+        this.memorySize = memorySize;
+        this.celebrityThreshold = celebrityThreshold;
+        this.maxUsers = maxUsers;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Ring> eldest) {
+                return size() > TimelineService.this.maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Метод передает записанные события на раскладку в ленты подписчиков их авторов
+     *
+     * @param feeds события с присвоенными идентификаторами
+     */
+    @Override
+    public void onFeeds(List<Feed> feeds) {
+        dispatcher.execute(() -> fanOut(feeds));
+    }
+
+    /**
+     * Метод завершает раскладку событий при остановке приложения
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        dispatcher.shutdown();
+        if (!dispatcher.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Раскладка событий в ленты подписчиков не завершена при остановке");
+        }
+    }
+
+    private void fanOut(List<Feed> feeds) {
+        for (Feed feed : feeds) {
+            List<Long> followers = friendDao.getFollowers(feed.getUserId());
+            if (followers.isEmpty() || followers.size() > celebrityThreshold) {
+                continue;
+            }
+            try {
+                timelineDao.addEntries(feed.getEventId(), followers);
+            } catch (DataAccessException exception) {
+                log.warn("Событие {} не добавлено в ленты подписчиков: {}", feed.getEventId(),
+                        exception.getMessage());
+                continue;
+            }
+            for (Ring ring : getLoaded(followers)) {
+                ring.add(feed);
+            }
+        }
+    }
+
+    /**
+     * Метод возвращает страницу ленты активности друзей пользователя, от новых событий к старым
+     *
+     * @param userId        идентификатор пользователя
+     * @param beforeEventId идентификатор события, более старые события которого попадают в страницу
+     * @param limit         размер страницы
+     * @return возвращает события друзей
+     */
+    public List<Feed> getTimeline(Long userId, Long beforeEventId, int limit) {
+        Set<Long> friends = new HashSet<>(friendDao.getFriend(userId));
+        if (friends.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Ring ring = getRing(userId);
+        List<Feed> events = ring.page(beforeEventId, limit);
+        if (events.size() < limit && !ring.isComplete()) {
+            events = timelineDao.getTimelinePage(userId, beforeEventId, limit);
+        }
+        Map<Long, Feed> merged = new LinkedHashMap<>();
+        for (Feed feed : events) {
+            merged.put(feed.getEventId(), feed);
+        }
+        List<Long> celebrities = friendDao.getPopularFriends(userId, celebrityThreshold);
+        if (!celebrities.isEmpty()) {
+            for (Feed feed : timelineDao.getEventsByUsers(celebrities, beforeEventId, limit)) {
+                merged.put(feed.getEventId(), feed);
+            }
+        }
+        List<Feed> timeline = new ArrayList<>(merged.size());
+        for (Feed feed : merged.values()) {
+            if (friends.contains(feed.getUserId())) {
+                timeline.add(feed);
+            }
+        }
+        timeline.sort(Comparator.comparingLong(Feed::getEventId).reversed());
+        return timeline.size() > limit ? new ArrayList<>(timeline.subList(0, limit)) : timeline;
+    }
+
+    /**
+     * Метод удаляет ленту пользователя из памяти
+     *
+     * @param userId идентификатор пользователя
+     */
+    public synchronized void removeUser(Long userId) {
+        markStale(userId);
+        timelines.remove(userId);
+    }
+
+    private Ring getRing(Long userId) {
+        Loading load;
+        synchronized (this) {
+            Ring ring = timelines.get(userId);
+            if (ring != null && ring.expiresAt >= System.currentTimeMillis()) {
+                return ring;
+            }
+            timelines.remove(userId);
+            load = loading.computeIfAbsent(userId, key -> new Loading());
+            load.loaders++;
+        }
+        List<Feed> events = timelineDao.getTimelinePage(userId, Long.MAX_VALUE, memorySize);
+        Ring ring = new Ring(memorySize, events.size() < memorySize, System.currentTimeMillis() + ttlMillis);
+        for (int i = events.size() - 1; i >= 0; i--) {
+            ring.add(events.get(i));
+        }
+        synchronized (this) {
+            if (--load.loaders == 0) {
+                loading.remove(userId);
+            }
+            if (!load.stale) {
+                timelines.put(userId, ring);
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Метод возвращает буферы подписчиков, загруженные в память, и помечает устаревшими загрузки остальных
+     */
+    private synchronized List<Ring> getLoaded(List<Long> userIds) {
+        List<Ring> rings = new ArrayList<>();
+        for (Long userId : userIds) {
+            Ring ring = timelines.get(userId);
+            if (ring != null) {
+                rings.add(ring);
+            } else {
+                markStale(userId);
+            }
+        }
+        return rings;
+    }
+
+    private void markStale(Long userId) {
+        Loading load = loading.get(userId);
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    /**
+     * Загрузка буфера пользователя: количество загружающих потоков и признак записи в ленту во время загрузки
+     */
+    private static final class Loading {
+        private int loaders;
+        private boolean stale;
+    }
+
+    /**
+     * Кольцевой буфер последних событий ленты. Хранит не больше заданного количества событий, при
+     * переполнении вытесняются самые старые.
+     */
+    private static final class Ring {
+        private final Feed[] events;
+        private final long expiresAt;
+        private int head;
+        private int size;
+        /**
+         * Признак того, что в буфере вся лента пользователя и обращаться к БД не нужно
+         */
+        private boolean complete;
+
+        private Ring(int capacity, boolean complete, long expiresAt) {
+            this.events = new Feed[capacity];
+            this.complete = complete;
+            this.expiresAt = expiresAt;
+        }
+
+        private synchronized Ring add(Feed feed) {
+            if (size > 0 && newest().getEventId() >= feed.getEventId()) {
+                return this;
+            }
+            events[(head + size) % events.length] = feed;
+            if (size < events.length) {
+                size++;
+            } else {
+                head = (head + 1) % events.length;
+                complete = false;
+            }
+            return this;
+        }
+
+        private synchronized List<Feed> page(long beforeEventId, int limit) {
+            List<Feed> page = new ArrayList<>(Math.min(limit, size));
+            for (int i = size - 1; i >= 0 && page.size() < limit; i--) {
+                Feed feed = events[(head + i) % events.length];
+                if (feed.getEventId() < beforeEventId) {
+                    page.add(feed);
+                }
+            }
+            return page;
+        }
+
+        private synchronized boolean isComplete() {
+            return complete;
+        }
+
+        private Feed newest() {
+            return events[(head + size - 1) % events.length];
+        }
+    }
+}
@@ -1,35 +1,36 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.yandex.practicum.filmorate.assistant.EventType;
 import ru.yandex.practicum.filmorate.assistant.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.dao.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.dao.friend.FriendDao;
-import ru.yandex.practicum.filmorate.storage.dao.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserStorage;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Класс-сервис с логикой для оперирования пользователями с хранилищами <b>userDbStorage<b/>
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserDbService {
+	/**
+	 * Максимальный размер страницы при постраничной выдаче ленты событий
+	 */
+	public static final int MAX_FEED_PAGE_SIZE = 1000;
 	/**
 	 * Поле с прошлой версией хранилища пользователей
 	 */
@@ -46,22 +47,41 @@ public class UserDbService {
 	 * Поле для доступа к операциям с лентой событий.
 	 */
 	private final FeedStorage feedStorage;
+	/**
+	 * Поле с сервисом снимков рекомендаций.
+	 */
+	private final RecommendationService recommendationService;
+	/**
+	 * Поле с сервисом лент активности друзей.
+	 */
+	private final TimelineService timelineService;
+	/**
+	 * Поле с сервисом подписок на ленту событий.
+	 */
+	private final FeedSubscriptionService feedSubscriptionService;
 
 	/**
 	 * Конструктор сервиса.
 	 *
-	 * @see UserDbService#UserDbService(UserDbStorage, FriendDao, FilmDbService, FeedStorage)
+	 * @see UserDbService#UserDbService(UserStorage, FriendDao, FilmDbService, FeedStorage, RecommendationService,
+	 * TimelineService, FeedSubscriptionService)
 	 */
 	@Autowired
-	public UserDbService(@Qualifier("UserDbStorage") UserDbStorage userStorage,
+	public UserDbService(UserStorage userStorage,
 						 FriendDao friendDao,
 						 FilmDbService filmService,
-						 FeedStorage feedStorage) {
+						 FeedStorage feedStorage,
+						 RecommendationService recommendationService,
+						 TimelineService timelineService,
+						 FeedSubscriptionService feedSubscriptionService) {
 
 		this.userStorage = userStorage;
 		this.friendDao = friendDao;
 		this.filmService = filmService;
 		this.feedStorage = feedStorage;
+		this.recommendationService = recommendationService;
+		this.timelineService = timelineService;
+		this.feedSubscriptionService = feedSubscriptionService;
 	}
 
 	/**
@@ -72,7 +92,7 @@ public class UserDbService {
 	 * @throws NotFoundException генерирует ошибку 404 если введен не верный id пользователя или друга.
 	 */
 	public void addFriend(Long userId, Long idFriend) {
-		if (userId > 0 && idFriend > 0) {
+		if (isContains(userId) && isContains(idFriend)) {
 			boolean status = friendDao.isFriend(userId, idFriend);
 			friendDao.addFriends(userId, idFriend, status);
 			log.info("Пользователи с id {} и {} добавлены друг другу в друзья", userId, idFriend);
@@ -103,13 +123,10 @@ public class UserDbService {
 	 * @return возвращает список общих друзей или пустой список, если таковых необнаружено.
 	 */
 	public List<User> getMutualFriends(Long userId, Long idFriend) {
-		List<User> userFriends = getFriends(userId);
-		List<User> friendFriends = getFriends(idFriend);
+		checkUser(userId);
+		checkUser(idFriend);
 		log.info("Запрошены общие друзья у пользователя с id {} и {}", userId, idFriend);
-		return friendFriends.stream()
-				.filter(userFriends::contains)
-				.filter(friendFriends::contains)
-				.collect(Collectors.toList());
+		return friendDao.getMutualFriends(userId, idFriend);
 	}
 
 	/**
@@ -121,43 +138,20 @@ public class UserDbService {
 	 * @throws NotFoundException генерирует 404 ошибку в случае если пользователь не зарегистрирован.
 	 */
 	public List<Film> getRecommendations(long id) {
-		if (userStorage.getUserById(id) == null) {
+		if (!userStorage.isContains(id)) {
 			throw new NotFoundException(String.format("пользователь с id %d не зарегистрирован.", id));
 		} else {
 			log.info("Запрошены рекомендации для пользователя с id {}", id);
-			final Collection<Film> userFilms = filmService.getFilmsByUser(id);
-			long userId = 0;
-			long countCoincidences = 0;
-			for (User user : userStorage.getUsers()) {
-				if (user.getId() != id) {
-					long count = 0;
-					for (Film film : filmService.getFilmsByUser(user.getId())) {
-						if (userFilms.contains(film)) {
-							count++;
-						}
-					}
-					if (count > countCoincidences) {
-						userId = user.getId();
-						countCoincidences = count;
-					}
-				}
-			}
+			List<Film> recommendations = filmService.getFilmsByIds(recommendationService.getRecommendations(id));
 			log.info("Рекомендации для пользователя с id {} успешно предоставлены", id);
-			return filmService.getFilmsByUser(userId).stream()
-					.filter(film -> !userFilms.contains(film))
-					.collect(Collectors.toList());
+			return recommendations;
 		}
 	}
 
     public List<User> getFriends(Long id) {
-        if (userStorage.getUserById(id).getEmail().isEmpty()) {
-            throw new NotFoundException(String.format("Пользователь с id %d не существует", id));
-        }
+        checkUser(id);
             log.info("Запрошены друзья у пользователя с id {}", id);
-        return friendDao.getFriend(id).stream()
-                    .mapToLong(Long::valueOf)
-                    .mapToObj(userStorage::getUserById)
-                    .collect(Collectors.toList());
+        return userStorage.getUsersByIds(friendDao.getFriend(id));
     }
 
     public User createUser(User user) {
@@ -191,6 +185,9 @@ public class UserDbService {
     }
 
 	public void deleteUser(Long userId) {
+		filmService.deleteLikesByUser(userId);
+		recommendationService.removeUser(userId);
+		timelineService.removeUser(userId);
 		userStorage.deleteUser(userId);
 	}
 
@@ -201,11 +198,97 @@ public class UserDbService {
 	 * @return возвращает ленту событий в которых приняли участие друзья пользователя.
 	 */
 	public Collection<Feed> getFeeds(Long userId) {
-		if (userStorage.getUserById(userId) != null) {
+		if (userStorage.isContains(userId)) {
 			log.info("Запрошена лента событий для пользователя с id {}", userId);
-			return new ArrayList<>(feedStorage.getFeeds(userId));
+			return feedStorage.getFeeds(userId);
 		} else {
 			throw new NotFoundException(String.format("пользователь с id %d не зарегистрирован.", userId));
 		}
 	}
+
+	/**
+	 * Метод возвращения страницы ленты событий пользователя.
+	 *
+	 * @param userId       id пользователя для которого выгружается лента событий.
+	 * @param afterEventId id последнего события предыдущей страницы (0 для первой страницы).
+	 * @param limit        размер страницы, не больше {@link UserDbService#MAX_FEED_PAGE_SIZE}.
+	 * @return возвращает события страницы по возрастанию id события.
+	 * @throws ValidationException генерирует ошибку 400 если размер страницы вне допустимых границ.
+	 */
+	public List<Feed> getFeedsPage(Long userId, Long afterEventId, int limit) {
+		if (limit <= 0 || limit > MAX_FEED_PAGE_SIZE) {
+			throw new ValidationException(String.format("Размер страницы должен быть от 1 до %d",
+					MAX_FEED_PAGE_SIZE));
+		}
+		checkUser(userId);
+		log.info("Запрошена страница ленты событий для пользователя с id {} после события {}", userId, afterEventId);
+		return feedStorage.getFeedsPage(userId, afterEventId, limit);
+	}
+
+	/**
+	 * Метод последовательно передает всю ленту событий пользователя обработчику, загружая ее страницами,
+	 * так что в памяти одновременно находится не более одной страницы. Существование пользователя проверяет
+	 * вызывающий код до начала выгрузки.
+	 *
+	 * @param userId   id пользователя для которого выгружается лента событий.
+	 * @param consumer обработчик событий.
+	 */
+	public void streamFeeds(Long userId, Consumer<Feed> consumer) {
+		long afterEventId = 0;
+		List<Feed> page;
+		do {
+			page = feedStorage.getFeedsPage(userId, afterEventId, MAX_FEED_PAGE_SIZE);
+			page.forEach(consumer);
+			if (!page.isEmpty()) {
+				afterEventId = page.get(page.size() - 1).getEventId();
+			}
+		} while (page.size() == MAX_FEED_PAGE_SIZE);
+	}
+
+	/**
+	 * Метод возвращения страницы ленты активности друзей пользователя.
+	 *
+	 * @param userId        id пользователя для которого выгружается лента.
+	 * @param beforeEventId id события, более старые события которого попадают в страницу.
+	 * @param limit         размер страницы, не больше {@link UserDbService#MAX_FEED_PAGE_SIZE}.
+	 * @return возвращает события друзей пользователя от новых к старым.
+	 * @throws ValidationException генерирует ошибку 400 если размер страницы вне допустимых границ.
+	 */
+	public List<Feed> getFriendsFeed(Long userId, Long beforeEventId, int limit) {
+		if (limit <= 0 || limit > MAX_FEED_PAGE_SIZE) {
+			throw new ValidationException(String.format("Размер страницы должен быть от 1 до %d",
+					MAX_FEED_PAGE_SIZE));
+		}
+		checkUser(userId);
+		log.info("Запрошена лента активности друзей пользователя с id {} до события {}", userId, beforeEventId);
+		return timelineService.getTimeline(userId, beforeEventId, limit);
+	}
+
+	/**
+	 * Метод подписки на новые события ленты пользователя.
+	 *
+	 * @param userId id пользователя, на ленту которого оформляется подписка.
+	 * @return возвращает поток server-sent events.
+	 */
+	public SseEmitter subscribeToFeed(Long userId) {
+		checkUser(userId);
+		log.info("Оформлена подписка на ленту событий пользователя с id {}", userId);
+		return feedSubscriptionService.subscribe(userId);
+	}
+
+	/**
+	 * Метод проверки существования пользователя без загрузки его данных.
+	 *
+	 * @param id id пользователя.
+	 * @return возвращает true - если пользователь найден, false - если не найден.
+	 */
+	public boolean isContains(Long id) {
+		return id != null && userStorage.isContains(id);
+	}
+
+	private void checkUser(Long id) {
+		if (!isContains(id)) {
+			throw new NotFoundException(String.format("Пользователя с id %d не существует", id));
+		}
+	}
 }
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс-счетчик попаданий и промахов кэша со свойствами <b>name<b/>, <b>hits<b/>, <b>misses<b/>.
+ */
+@RequiredArgsConstructor
+public class CacheStats {
+    /**
+     * Поле с названием кэша
+     */
+    @Getter
+    private final String name;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    public void miss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Метод возвращает долю попаданий в кэш
+     *
+     * @return возвращает число от 0 до 1, или 0 если к кэшу еще не обращались
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: попаданий %d, промахов %d, доля попаданий %.2f",
+                name, getHits(), getMisses(), getHitRatio());
+    }
+}
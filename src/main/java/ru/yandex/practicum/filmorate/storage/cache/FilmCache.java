@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Класс-кэш заполненных фильмов с ограничением по размеру (вытесняются давно не запрошенные фильмы)
+ * и по времени жизни записи. Каждая инвалидация увеличивает версию кэша: фильм, загруженный из БД
+ * до инвалидации, в кэш уже не попадет.
+ */
+@Slf4j
+@Component
+public class FilmCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, Entry> films;
+    private long version;
+    /**
+     * Поле со статистикой обращений к кэшу
+     */
+    @Getter
+    private final CacheStats stats = new CacheStats("film");
+
+    public FilmCache(@Value("${filmorate.cache.film.max-size:10000}") int maxSize,
+                     @Value("${filmorate.cache.film.ttl-seconds:600}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > FilmCache.this.maxSize;
+            }
+        };
+        log.info("Кэш фильмов: максимальный размер {}, время жизни {} с", maxSize, ttlSeconds);
+    }
+
+    /**
+     * Метод возвращает фильм из кэша
+     *
+     * @param id идентификатор фильма
+     * @return возвращает фильм или null, если фильма нет в кэше или запись устарела
+     */
+    public synchronized Film get(Long id) {
+        Entry entry = films.get(id);
+        if (entry == null) {
+            stats.miss();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            films.remove(id);
+            stats.miss();
+            return null;
+        }
+        stats.hit();
+        return entry.film;
+    }
+
+    /**
+     * Метод проверяет, есть ли фильм в кэше, не изменяя статистику обращений
+     *
+     * @param id идентификатор фильма
+     * @return возвращает true, если в кэше есть актуальная запись фильма
+     */
+    public synchronized boolean contains(Long id) {
+        Entry entry = films.get(id);
+        return entry != null && entry.expiresAt >= System.currentTimeMillis();
+    }
+
+    /**
+     * Метод возвращает текущую версию кэша. Версию нужно получить до чтения фильма из БД
+     * и передать в {@link FilmCache#put(Film, long)}.
+     *
+     * @return возвращает версию кэша
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Метод кладет фильм в кэш, если с момента получения версии не было инвалидаций
+     *
+     * @param film    заполненный фильм
+     * @param version версия кэша, полученная до чтения фильма из БД
+     */
+    public synchronized void put(Film film, long version) {
+        if (this.version == version) {
+            films.put(film.getId(), new Entry(film, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * Метод удаляет фильм из кэша. Внутри транзакции фильм удаляется еще раз после ее фиксации,
+     * чтобы в кэше не осталась версия, прочитанная другим потоком до фиксации изменений.
+     *
+     * @param id идентификатор фильма
+     */
+    public void evict(Long id) {
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод очищает кэш, например при изменении режиссера, который может быть у любого фильма
+     */
+    public synchronized void clear() {
+        version++;
+        films.clear();
+        log.debug("Кэш фильмов очищен, {}", stats);
+    }
+
+    private synchronized void remove(Long id) {
+        version++;
+        films.remove(id);
+    }
+
+    public synchronized int size() {
+        return films.size();
+    }
+
+    /**
+     * Запись кэша
+     */
+    private static final class Entry {
+        private final Film film;
+        private final long expiresAt;
+
+        private Entry(Film film, long expiresAt) {
+            this.film = film;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.dao.director;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс-кэш режиссеров поверх {@link DirectorDaoImpl}. Изменения режиссеров проходят через кэш
+ * и сразу обновляют его, операции со связями фильмов и режиссеров передаются в {@link DirectorDaoImpl}.
+ * Данные, прочитанные из БД параллельно с изменением, в кэш не попадают: проверка версии и запись в кэш
+ * выполняются под той же блокировкой, под которой изменения увеличивают версию.
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+public class CachedDirectorDao implements DirectorDao {
+    private final DirectorDaoImpl directorDao;
+    private final Map<Integer, Director> directorById = new ConcurrentHashMap<>();
+    private volatile List<Director> directors;
+    private final Object lock = new Object();
+    /**
+     * Поле с версией данных, увеличивается при каждом изменении режиссеров, защищено блокировкой lock
+     */
+    private long version;
+    /**
+     * Поле со статистикой обращений к кэшу
+     */
+    @Getter
+    private final CacheStats stats = new CacheStats("director");
+
+    @Override
+    public Director addDirector(Director director) {
+        Director thisDirector = directorDao.addDirector(director);
+        synchronized (lock) {
+            version++;
+            directorById.put(thisDirector.getId(), thisDirector);
+            directors = null;
+        }
+        return thisDirector;
+    }
+
+    @Override
+    public void addDirectorsToFilm(Long filmId, Set<Director> directors) {
+        directorDao.addDirectorsToFilm(filmId, directors);
+    }
+
+    @Override
+    public Director updateDirectorData(Director director) {
+        Director thisDirector = directorDao.updateDirectorData(director);
+        synchronized (lock) {
+            version++;
+            directorById.put(thisDirector.getId(), thisDirector);
+            directors = null;
+        }
+        return thisDirector;
+    }
+
+    @Override
+    public void updateDirectorsInFilm(Long filmId, Set<Director> directors) {
+        directorDao.updateDirectorsInFilm(filmId, directors);
+    }
+
+    @Override
+    public Director getDirectorById(Integer id) {
+        Director director = directorById.get(id);
+        if (director != null) {
+            stats.hit();
+            return director;
+        }
+        stats.miss();
+        long loadedVersion = version();
+        director = directorDao.getDirectorById(id);
+        synchronized (lock) {
+            if (version == loadedVersion) {
+                directorById.put(id, director);
+            }
+        }
+        log.trace("Режиссер {} добавлен в кэш, {}", director, stats);
+        return director;
+    }
+
+    @Override
+    public Set<Director> getDirectorsByFilm(Long filmId) {
+        return directorDao.getDirectorsByFilm(filmId);
+    }
+
+    @Override
+    public void deleteDirectorById(Integer id) {
+        directorDao.deleteDirectorById(id);
+        synchronized (lock) {
+            version++;
+            directorById.remove(id);
+            directors = null;
+        }
+    }
+
+    @Override
+    public void deleteDirectorsFromFilm(Long filmId) {
+        directorDao.deleteDirectorsFromFilm(filmId);
+    }
+
+    @Override
+    public List<Director> getDirectors() {
+        List<Director> list = directors;
+        if (list != null) {
+            stats.hit();
+            return new ArrayList<>(list);
+        }
+        stats.miss();
+        long loadedVersion = version();
+        list = directorDao.getDirectors();
+        synchronized (lock) {
+            if (version == loadedVersion) {
+                list.forEach(director -> directorById.put(director.getId(), director));
+                directors = list;
+            }
+        }
+        return new ArrayList<>(list);
+    }
+
+    @Override
+    public boolean isContains(Integer id) {
+        if (id != null && directorById.containsKey(id)) {
+            stats.hit();
+            return true;
+        }
+        return directorDao.isContains(id);
+    }
+
+    private long version() {
+        synchronized (lock) {
+            return version;
+        }
+    }
+}
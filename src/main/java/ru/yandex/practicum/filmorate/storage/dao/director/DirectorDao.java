@@ -78,7 +78,6 @@ public interface DirectorDao {
      *
      * @param id идентификатор режиссера
      * @return возвращает true если режиссер есть в базу данных и false - если нет
-     * @catch отлавливает ошибку EmptyResultDataAccessException.class
      */
     boolean isContains(Integer id);
 }
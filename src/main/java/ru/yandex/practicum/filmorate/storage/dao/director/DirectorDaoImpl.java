@@ -2,15 +2,20 @@ package ru.yandex.practicum.filmorate.storage.dao.director;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.mapper.DirectorMapper;
 
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 @Slf4j
@@ -22,9 +27,15 @@ public class DirectorDaoImpl implements DirectorDao {
     @Override
     public Director addDirector(Director director) {
         log.debug("addDirector({})", director);
-        jdbcTemplate.update("INSERT INTO directors (director_name) VALUES (?)", director.getName());
-        Director thisDirector = jdbcTemplate.queryForObject("SELECT director_id, director_name FROM directors " +
-                "WHERE director_name=?", new DirectorMapper(), director.getName());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO directors (director_name) VALUES (?)", new String[]{"director_id"});
+            statement.setString(1, director.getName());
+            return statement;
+        }, keyHolder);
+        Director thisDirector = new Director(Objects.requireNonNull(keyHolder.getKey()).intValue(),
+                director.getName());
         log.trace("Добавлены данные о новом режиссере: {}", thisDirector);
         return thisDirector;
     }
@@ -32,10 +43,7 @@ public class DirectorDaoImpl implements DirectorDao {
     @Override
     public void addDirectorsToFilm(Long filmId, Set<Director> directors) {
         log.debug("addDirectorsToFilm({}, {})", filmId, directors);
-        for (Director director : directors) {
-            jdbcTemplate.update("INSERT INTO film_directors (film_id, director_id) VALUES (?,?)",
-                    filmId, director.getId());
-        }
+        insertDirectors(filmId, getDirectorIds(directors));
         log.trace("К фильму с идентификатором {} были добавлены следующие режиссеры: {}", filmId, directors);
     }
 
@@ -44,17 +52,32 @@ public class DirectorDaoImpl implements DirectorDao {
         log.debug("updateDirectorData({})", director);
         jdbcTemplate.update("UPDATE directors SET director_name=? WHERE director_id=?",
                 director.getName(), director.getId());
-        Director thisDirector = jdbcTemplate.queryForObject("SELECT director_id, director_name FROM directors " +
-                "WHERE director_name=?", new DirectorMapper(), director.getName());
+        Director thisDirector = new Director(director.getId(), director.getName());
         log.trace("Обновлены данные о режиссере: {}", thisDirector);
         return thisDirector;
     }
 
+    /**
+     * Метод обновляет режиссеров фильма, удаляя и добавляя только изменившиеся связи
+     */
     @Override
     public void updateDirectorsInFilm(Long filmId, Set<Director> directors) {
         log.debug("updateDirectorsInFilm({}, {})", filmId, directors);
-        deleteDirectorsFromFilm(filmId);
-        addDirectorsToFilm(filmId, directors);
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT director_id FROM film_directors WHERE film_id=?", Integer.class, filmId));
+        Set<Integer> target = getDirectorIds(directors);
+        List<Integer> removed = new ArrayList<>(current);
+        removed.removeAll(target);
+        List<Integer> added = new ArrayList<>(target);
+        added.removeAll(current);
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_directors WHERE film_id=? AND director_id=?", removed,
+                    removed.size(), (statement, directorId) -> {
+                        statement.setLong(1, filmId);
+                        statement.setInt(2, directorId);
+                    });
+        }
+        insertDirectors(filmId, added);
         log.trace("У фильма {} обновлен список режиссеров: {}", filmId, directors);
     }
 
@@ -103,13 +126,28 @@ public class DirectorDaoImpl implements DirectorDao {
     @Override
     public boolean isContains(Integer id) {
         log.debug("isContains({})", id);
-        try {
-            getDirectorById(id);
-            log.trace("Режиссер с идентификатором {} найден", id);
-            return true;
-        } catch (EmptyResultDataAccessException exception) {
-            log.trace("Нет информации о режиссере с идентификатором {}", id);
-            return false;
+        boolean contains = id != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM directors WHERE director_id = ?)", Boolean.class, id));
+        log.trace("Режиссер с идентификатором {} найден: {}", id, contains);
+        return contains;
+    }
+
+    private void insertDirectors(Long filmId, Collection<Integer> directorIds) {
+        if (directorIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_directors (film_id, director_id) VALUES (?,?)", directorIds,
+                directorIds.size(), (statement, directorId) -> {
+                    statement.setLong(1, filmId);
+                    statement.setInt(2, directorId);
+                });
+    }
+
+    private static Set<Integer> getDirectorIds(Set<Director> directors) {
+        Set<Integer> directorIds = new LinkedHashSet<>();
+        for (Director director : directors) {
+            directorIds.add(director.getId());
         }
+        return directorIds;
     }
 }
@@ -2,15 +2,22 @@ package ru.yandex.practicum.filmorate.storage.dao.feed;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.assistant.EventType;
 import ru.yandex.practicum.filmorate.assistant.Operation;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.storage.mapper.FeedMapper;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @Component
@@ -26,10 +33,50 @@ public class FeedDbStorage implements FeedStorage {
 		log.trace("Добавлено событие связанное с пользователем {} и сущностью {}.", userId, entityId);
 	}
 
+	@Override
+	@Transactional
+	public List<Feed> addFeeds(List<Feed> feeds) {
+		if (feeds.isEmpty()) {
+			return feeds;
+		}
+		List<Feed> saved = new ArrayList<>(feeds.size());
+		jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(
+					"INSERT INTO feed (time, user_id, event_type, operation, entity_id) VALUES (?, ?, ?, ?, ?)",
+					new String[]{"event_id"})) {
+				for (Feed feed : feeds) {
+					statement.setTimestamp(1, new Timestamp(feed.getTimestamp()));
+					statement.setLong(2, feed.getUserId());
+					statement.setString(3, feed.getEventType().toString());
+					statement.setString(4, feed.getOperation().toString());
+					statement.setLong(5, feed.getEntityId());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+				try (ResultSet keys = statement.getGeneratedKeys()) {
+					for (Feed feed : feeds) {
+						keys.next();
+						saved.add(feed.toBuilder().eventId(keys.getLong(1)).build());
+					}
+				}
+			}
+			return null;
+		});
+		log.trace("Добавлено событий пакетом: {}.", saved.size());
+		return saved;
+	}
+
 	@Override
 	public Collection<Feed> getFeeds(Long id) {
 		log.trace("Лента событий для пользователя {} выгружена.", id);
 		return jdbcTemplate
-				.query("SELECT * FROM feed WHERE user_id = ?", new FeedMapper(), id);
+				.query("SELECT * FROM feed WHERE user_id = ? ORDER BY event_id", new FeedMapper(), id);
+	}
+
+	@Override
+	public List<Feed> getFeedsPage(Long id, Long afterEventId, int limit) {
+		log.trace("Страница ленты событий для пользователя {} после события {} выгружена.", id, afterEventId);
+		return jdbcTemplate.query("SELECT * FROM feed WHERE user_id = ? AND event_id > ? ORDER BY event_id LIMIT ?",
+				new FeedMapper(), id, afterEventId, limit);
 	}
 }
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.dao.feed;
+
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.util.List;
+
+/**
+ * Интерфейс обработчика событий, записанных в ленту. Вызывается {@link QueuedFeedStorage} после записи
+ * каждой пачки событий в БД.
+ */
+public interface FeedListener {
+	/**
+	 * Метод обработки записанных событий.
+	 *
+	 * @param feeds события с присвоенными идентификаторами в порядке записи.
+	 */
+	void onFeeds(List<Feed> feeds);
+}
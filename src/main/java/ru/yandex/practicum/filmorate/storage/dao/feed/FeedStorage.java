@@ -6,9 +6,28 @@ import ru.yandex.practicum.filmorate.model.Feed;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 
 public interface FeedStorage {
 	void addFeed(LocalDateTime time, Long userId, EventType eventType, Operation operation, Long entityId);
 
+	/**
+	 * Метод добавляет пачку событий одним пакетным запросом.
+	 *
+	 * @param feeds события без идентификаторов.
+	 * @return возвращает сохраненные события с присвоенными идентификаторами в порядке добавления.
+	 */
+	List<Feed> addFeeds(List<Feed> feeds);
+
 	Collection<Feed> getFeeds(Long id);
+
+	/**
+	 * Метод возвращает страницу ленты событий пользователя по возрастанию идентификатора события.
+	 *
+	 * @param id           идентификатор пользователя.
+	 * @param afterEventId идентификатор последнего события предыдущей страницы (0 для первой страницы).
+	 * @param limit        размер страницы.
+	 * @return возвращает события страницы.
+	 */
+	List<Feed> getFeedsPage(Long id, Long afterEventId, int limit);
 }
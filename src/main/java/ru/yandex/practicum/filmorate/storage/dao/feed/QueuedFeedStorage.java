@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.storage.dao.feed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.assistant.EventType;
+import ru.yandex.practicum.filmorate.assistant.Operation;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс-очередь событий поверх {@link FeedDbStorage}. События попадают в ограниченную очередь в памяти
+ * и записываются в БД пакетами фоновой задачей, поэтому запись события не добавляет INSERT в обработку запроса.
+ * Если очередь заполнена, добавляющий поток сам сбрасывает ее в БД. Для каждого пользователя считается
+ * количество его событий, еще не записанных в БД: перед чтением ленты очередь сбрасывается, только если в ней
+ * есть события этого пользователя, так что пользователь всегда видит свои события, а чтение чужих лент
+ * не ждет записи. При остановке приложения очередь сбрасывается.
+ */
+@Slf4j
+@Primary
+@Component
+public class QueuedFeedStorage implements FeedStorage {
+	private final FeedDbStorage feedStorage;
+	private final ObjectProvider<FeedListener> listeners;
+	private final BlockingQueue<Feed> queue;
+	private final int flushSize;
+	/**
+	 * Поле с количеством событий каждого пользователя, которые добавлены в очередь и еще не записаны в БД
+	 */
+	private final Map<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+
+	public QueuedFeedStorage(FeedDbStorage feedStorage,
+							 ObjectProvider<FeedListener> listeners,
+							 @Value("${filmorate.feed.queue-capacity:10000}") int queueCapacity,
+							 @Value("${filmorate.feed.flush-size:500}") int flushSize) {
+		this.feedStorage = feedStorage;
+		this.listeners = listeners;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.flushSize = flushSize;
+		log.info("Очередь событий: емкость {}, размер пакета {}", queueCapacity, flushSize);
+	}
+
+	@Override
+	public void addFeed(LocalDateTime time, Long userId, EventType eventType, Operation operation, Long entityId) {
+		enqueue(Feed.builder()
+				.timestamp(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+				.userId(userId)
+				.eventType(eventType)
+				.operation(operation)
+				.entityId(entityId)
+				.build());
+	}
+
+	@Override
+	public List<Feed> addFeeds(List<Feed> feeds) {
+		feeds.forEach(this::enqueue);
+		return feeds;
+	}
+
+	@Override
+	public Collection<Feed> getFeeds(Long id) {
+		flushIfPending(id);
+		return feedStorage.getFeeds(id);
+	}
+
+	@Override
+	public List<Feed> getFeedsPage(Long id, Long afterEventId, int limit) {
+		flushIfPending(id);
+		return feedStorage.getFeedsPage(id, afterEventId, limit);
+	}
+
+	/**
+	 * Метод записывает все накопленные события в БД пакетами не больше заданного размера
+	 */
+	@Scheduled(fixedDelayString = "${filmorate.feed.flush-interval-ms:100}")
+	public synchronized void flush() {
+		List<Feed> batch = new ArrayList<>(Math.min(flushSize, queue.size()));
+		while (queue.drainTo(batch, flushSize) > 0) {
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Метод сбрасывает очередь при остановке приложения
+	 */
+	@PreDestroy
+	public void shutdown() {
+		flush();
+		log.info("Очередь событий сброшена перед остановкой");
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	private void flushIfPending(Long userId) {
+		if (pendingByUser.containsKey(userId)) {
+			flush();
+		}
+	}
+
+	private void enqueue(Feed feed) {
+		pendingByUser.merge(feed.getUserId(), 1, Integer::sum);
+		while (!queue.offer(feed)) {
+			log.debug("Очередь событий заполнена, сброс в потоке запроса");
+			flush();
+		}
+	}
+
+	/**
+	 * Метод записывает пачку событий и передает записанные события обработчикам {@link FeedListener}.
+	 * Если пакетная запись не удалась (например, пользователь уже удален), события записываются по одному,
+	 * чтобы ошибка одного события не теряла остальные.
+	 */
+	private void write(List<Feed> batch) {
+		List<Feed> saved;
+		try {
+			saved = feedStorage.addFeeds(batch);
+		} catch (DataAccessException exception) {
+			log.warn("Не удалось записать пакет из {} событий, запись по одному: {}", batch.size(),
+					exception.getMessage());
+			saved = new ArrayList<>(batch.size());
+			for (Feed feed : batch) {
+				try {
+					saved.addAll(feedStorage.addFeeds(List.of(feed)));
+				} catch (DataAccessException feedException) {
+					log.warn("Событие {} не записано: {}", feed, feedException.getMessage());
+				}
+			}
+		}
+		for (Feed feed : batch) {
+			pendingByUser.computeIfPresent(feed.getUserId(), (userId, count) -> count == 1 ? null : count - 1);
+		}
+		for (FeedListener listener : listeners) {
+			try {
+				listener.onFeeds(saved);
+			} catch (RuntimeException exception) {
+				log.warn("Обработчик событий {} завершился с ошибкой", listener.getClass().getSimpleName(), exception);
+			}
+		}
+	}
+}
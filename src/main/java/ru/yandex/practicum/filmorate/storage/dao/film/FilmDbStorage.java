@@ -2,95 +2,38 @@ package ru.yandex.practicum.filmorate.storage.dao.film;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.SortBy;
 import ru.yandex.practicum.filmorate.storage.mapper.FilmMapper;
-import ru.yandex.practicum.filmorate.storage.mapper.FilmsWithGenreMapper;
 import ru.yandex.practicum.filmorate.storage.mapper.GenreMapper;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
+@Profile("!inmemory")
 @Component("FilmDbStorage")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
-    private static final String SELECT_POPULAR_FILM_ON_GENRES = "SELECT f.film_id AS film_id, f.name AS name, " +
-            "f.description AS description, f.release_date AS release_date, f.duration AS duration, " +
-            "f.mpa_id AS mpa_id, m.mpa_name AS mpa_name, fg.genre_id AS genre_id, g.genre_name AS genre_name, " +
-            "fd.director_id AS director_id, d.director_name AS director_name " +
-            "FROM film AS f INNER JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-            "INNER JOIN film_genre AS fg ON f.film_id = fg.film_id " +
-            "INNER JOIN genre AS g ON fg.genre_id = g.genre_id " +
-            "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-            "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-            "WHERE f.film_id IN (" +
-                "SELECT id FROM (" +
-                    "SELECT f.film_id AS id, l.user_id " +
-                    "FROM film AS f " +
-                    "INNER JOIN film_genre AS fg ON f.film_id = fg.film_id " +
-                    "INNER JOIN genre g ON fg.genre_id = g.genre_id " +
-                    "LEFT JOIN likes AS l ON f.film_id = l.film_id " +
-                    "WHERE g.genre_id = ? " +
-                    "GROUP BY f.film_id " +
-                    "ORDER BY count(l.user_id) DESC, f.film_id ASC " +
-                    "LIMIT ?) " +
-                ")";
-
-    private static final String SELECT_POPULAR_FILM_ON_YEAR = "SELECT f.film_id AS film_id, f.name AS name, " +
-            "f.description AS description, f.release_date AS release_date, f.duration AS duration, " +
-            "f.mpa_id AS mpa_id, m.mpa_name AS mpa_name, fg.genre_id AS genre_id, g.genre_name AS genre_name, " +
-            "fd.director_id AS director_id, d.director_name AS director_name " +
-            "FROM film AS f INNER JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-            "LEFT JOIN film_genre AS fg ON f.film_id = fg.film_id " +
-            "LEFT JOIN genre AS g ON fg.genre_id = g.genre_id " +
-            "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-            "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-            "WHERE f.film_id IN (" +
-            "SELECT id FROM (" +
-            "SELECT f.film_id AS id, l.user_id " +
-            "FROM film AS f " +
-            "LEFT JOIN likes AS l ON f.film_id = l.film_id " +
-            "WHERE EXTRACT(YEAR FROM CAST(f.release_date AS date)) = ? " +
-            "GROUP BY f.film_id " +
-            "ORDER BY count(l.user_id) DESC, f.film_id ASC " +
-            "LIMIT ?) " +
-            ")";
-
-    private static final String SELECT_POPULAR_FILM_ON_GENRES_AND_YEAR = "SELECT f.film_id AS film_id, f.name AS name, " +
-            "f.description AS description, f.release_date AS release_date, f.duration AS duration, " +
-            "f.mpa_id AS mpa_id, m.mpa_name AS mpa_name, fg.genre_id AS genre_id, g.genre_name AS genre_name, " +
-            "fd.director_id AS director_id, d.director_name AS director_name " +
-            "FROM film AS f INNER JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-            "INNER JOIN film_genre AS fg ON f.film_id = fg.film_id " +
-            "INNER JOIN genre AS g ON fg.genre_id = g.genre_id " +
-            "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-            "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-            "WHERE f.film_id IN (" +
-            "SELECT id FROM (" +
-            "SELECT f.film_id AS id, l.user_id " +
-            "FROM film AS f " +
-            "INNER JOIN film_genre AS fg ON f.film_id = fg.film_id " +
-            "INNER JOIN genre g ON fg.genre_id = g.genre_id " +
-            "LEFT JOIN likes AS l ON f.film_id = l.film_id " +
-            "WHERE g.genre_id = ? " +
-            "AND EXTRACT(YEAR FROM CAST(f.release_date AS date)) = ? " +
-            "GROUP BY f.film_id " +
-            "ORDER BY count(l.user_id) DESC, f.film_id ASC " +
-            "LIMIT ?) " +
-            ")";
-
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     /**
      * Метод создает новый фильм в БД
      *
@@ -100,15 +43,23 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public Film addFilm(Film film) {
         log.debug("addFilm({})", film);
-        jdbcTemplate.update(
-                "INSERT INTO film (name, description, release_date, duration, mpa_id) " +
-                        "VALUES (?,?,?,?,?)", film.getName(), film.getDescription(),
-                Date.valueOf(film.getReleaseDate()), film.getDuration(), film.getMpa().getId());
-        Film theFilm = jdbcTemplate.queryForObject(
-                    "SELECT film_id, name, description, release_date, duration, mpa_id FROM film " +
-                            "WHERE name=? AND description=? AND release_date=? AND duration=? AND mpa_id=? ",
-                new FilmMapper(), film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
-                film.getDuration(), film.getMpa().getId());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO film (name, description, release_date, duration, mpa_id) VALUES (?,?,?,?,?)",
+                    new String[]{"film_id"});
+            statement.setString(1, film.getName());
+            statement.setString(2, film.getDescription());
+            statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+            statement.setInt(4, film.getDuration());
+            statement.setInt(5, film.getMpa().getId());
+            return statement;
+        }, keyHolder);
+        Film theFilm = new Film(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration());
+        theFilm.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        Mpa mpa = new Mpa();
+        mpa.setId(film.getMpa().getId());
+        theFilm.setMpa(mpa);
         log.trace("Добавлен новый фильм в базу данных: {}", theFilm);
         return theFilm;
     }
@@ -123,17 +74,13 @@ public class FilmDbStorage implements FilmStorage {
     public Film updateFilm(Film film) {
         log.debug("updateFilm({})", film);
         Long filmId = film.getId();
-        try {
-            if (!getFilmById(filmId).getName().isEmpty()) {
-                jdbcTemplate.update("UPDATE film SET name=?, description=?, release_date=?, duration=?, mpa_id=? " +
-                                "WHERE film_id = ?", film.getName(), film.getDescription(),
-                        Date.valueOf(film.getReleaseDate()), film.getDuration(), film.getMpa().getId(), film.getId());
-                log.debug("Фильм обновлен");
-            }
-        } catch (EmptyResultDataAccessException exception) {
+        if (jdbcTemplate.update("UPDATE film SET name=?, description=?, release_date=?, duration=?, mpa_id=? " +
+                        "WHERE film_id = ?", film.getName(), film.getDescription(),
+                Date.valueOf(film.getReleaseDate()), film.getDuration(), film.getMpa().getId(), filmId) == 0) {
             log.debug("Фильм не существует");
             throw new NotFoundException(String.format("Фильма с id %d не существует", filmId));
         }
+        log.debug("Фильм обновлен");
         log.trace("Обновлён фильм : {}", film);
         return film;
     }
@@ -156,6 +103,11 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    @Override
+    public void deleteDirector(Integer directorId) {
+        log.debug("deleteDirector({})", directorId);
+    }
+
     @Override
     public Collection<Film> getFilms() {
         log.debug("getFilms()");
@@ -164,6 +116,15 @@ public class FilmDbStorage implements FilmStorage {
         return films;
     }
 
+    @Override
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        log.debug("getFilmsPage({}, {})", afterId, limit);
+        List<Film> films = jdbcTemplate.query("SELECT * FROM film WHERE film_id > ? ORDER BY film_id LIMIT ?",
+                new FilmMapper(), afterId, limit);
+        log.trace("Возвращена страница фильмов после {}: {}", afterId, films);
+        return films;
+    }
+
     /**
      * Метод предоставляет доступ(прокладка) к методу получения фильма из хранилища фильмов по id{@link FilmDbStorage}
      *
@@ -179,6 +140,46 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
+    @Override
+    public boolean isContains(Long id) {
+        log.debug("isContains({})", id);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM film WHERE film_id = ?)", Boolean.class, id));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        log.debug("getFilmsByIds({})", ids.size());
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            for (Film film : namedJdbcTemplate.query("SELECT * FROM film WHERE film_id IN (:ids)",
+                    Map.of("ids", batch), new FilmMapper())) {
+                filmsById.put(film.getId(), film);
+            }
+        }
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        log.trace("Возвращены фильмы по списку идентификаторов: {}", films);
+        return films;
+    }
+
+    @Override
+    public List<Film> getCommonFilms(Long userId, Long friendId) {
+        log.debug("getCommonFilms({}, {})", userId, friendId);
+        List<Film> films = jdbcTemplate.query("SELECT f.* FROM likes AS l1 " +
+                "INNER JOIN likes AS l2 ON l2.film_id = l1.film_id AND l2.user_id = ? " +
+                "INNER JOIN film AS f ON f.film_id = l1.film_id " +
+                "WHERE l1.user_id = ?", new FilmMapper(), friendId, userId);
+        log.trace("Возвращены общие фильмы пользователей {} и {}: {}", userId, friendId, films);
+        return films;
+    }
+
     @Override
     public HashSet<Genre> getGenresByFilm(Long filmId) {
         log.debug("getGenresByFilm({})", filmId);
@@ -194,9 +195,8 @@ public class FilmDbStorage implements FilmStorage {
         log.debug("getDirectorFilms({}, {})", directorId, sortBy);
         String year = "SELECT f.* FROM film_directors AS fd LEFT JOIN film AS f ON f.film_id = fd.film_id " +
                 "WHERE director_id=? ORDER BY year(f.release_date)";
-        String likes = "SELECT *, (SELECT COUNT(*) FROM likes WHERE fd.film_id = likes.film_id) AS likes " +
-                "FROM film_directors AS fd LEFT JOIN film AS f ON f.film_id = fd.film_id WHERE director_id=? " +
-                "ORDER BY likes DESC";
+        String likes = "SELECT f.* FROM film_directors AS fd LEFT JOIN film AS f ON f.film_id = fd.film_id " +
+                "WHERE director_id=? ORDER BY f.likes_count DESC";
         List<Film> sortedFilms = new ArrayList<>();
         if (sortBy == SortBy.LIKES) {
             sortedFilms = jdbcTemplate.query(likes, new FilmMapper(), directorId);
@@ -217,70 +217,4 @@ public class FilmDbStorage implements FilmStorage {
                 .query("SELECT * FROM film WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)",
                         new FilmMapper(), id);
     }
-
-    @Override
-    public List<Film> getPopularFilmsByGenre(int count, int genreId) {
-        try {
-            List<Film> films = jdbcTemplate.queryForObject(SELECT_POPULAR_FILM_ON_GENRES, new FilmsWithGenreMapper(),
-                    genreId, count);
-            sortingGenreInFilmOnId(films);
-
-            return films;
-        } catch (EmptyResultDataAccessException e) {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public List<Film> getPopularFilmsByYear(int count, int year) {
-        try {
-            List<Film> films = jdbcTemplate.queryForObject(SELECT_POPULAR_FILM_ON_YEAR, new FilmsWithGenreMapper(),
-                    year, count);
-            sortingGenreInFilmOnId(films);
-            return films;
-        } catch (EmptyResultDataAccessException e) {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public List<Film> getPopularFilmsByGenreAndYear(int count, int genreId, int year) {
-        try {
-            List<Film> films = jdbcTemplate.queryForObject(SELECT_POPULAR_FILM_ON_GENRES_AND_YEAR,
-                    new FilmsWithGenreMapper(), genreId, year, count);
-            sortingGenreInFilmOnId(films);
-            return films;
-        } catch (EmptyResultDataAccessException e) {
-            return Collections.emptyList();
-        }
-    }
-
-    private void sortingGenreInFilmOnId(List<Film> films) {
-        for (Film f: films) {
-            List<Genre> filmGenresNew = new ArrayList<>(f.getGenres());
-            filmGenresNew.sort(Comparator.comparing(Genre::getId));
-            f.getGenres().clear();
-            f.getGenres().addAll(filmGenresNew);
-        }
-    }
-
-    @Override
-    public List<Film> getSearchResult(String query, String by) {
-        String[] param = by.split(",");
-        if (param.length > 1) {
-            List<Film> result = jdbcTemplate.query("SELECT * FROM film WHERE LOWER(name) LIKE LOWER('%" + query + "%')", new FilmMapper());
-            result.addAll(jdbcTemplate.query("SELECT * FROM film WHERE film_id IN " +
-                    "(SELECT film_id FROM film_directors WHERE director_id IN " +
-                    "(SELECT director_id FROM directors WHERE LOWER(director_name) LIKE LOWER('%" + query + "%')))", new FilmMapper()));
-            return result;
-        } else {
-            if (param[0].equals("title")) {
-                return jdbcTemplate.query("SELECT * FROM film WHERE LOWER(name) LIKE LOWER('%" + query + "%')", new FilmMapper());
-            } else {
-                return jdbcTemplate.query("SELECT * FROM film WHERE film_id IN " +
-                        "(SELECT film_id FROM film_directors WHERE director_id IN " +
-                        "(SELECT director_id FROM directors WHERE LOWER(director_name) LIKE LOWER('%" + query + "%')))", new FilmMapper());
-            }
-        }
-    }
 }
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage.dao.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dao.director.DirectorDao;
+import ru.yandex.practicum.filmorate.storage.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.like.LikeDao;
+import ru.yandex.practicum.filmorate.storage.dao.mpa.MpaDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс для наполнения фильмов рейтингом, жанрами и режиссерами пачкой, без отдельных запросов на каждый фильм.
+ * Количество запросов зависит только от размера пачки {@link FilmHydrator#BATCH_SIZE}, а не от количества фильмов.
+ * Из БД читаются только связи фильмов с жанрами и режиссерами, сами рейтинги, жанры и режиссеры берутся
+ * из кэшей справочников.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmHydrator {
+    /**
+     * Максимальное количество идентификаторов в одном IN-запросе
+     */
+    private static final int BATCH_SIZE = 1000;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final MpaDao mpaDao;
+    private final GenreDao genreDao;
+    private final DirectorDao directorDao;
+    private final LikeDao likeDao;
+
+    /**
+     * Метод заполняет у переданных фильмов рейтинг, жанры и режиссеров
+     *
+     * @param films коллекция фильмов, полученная из таблицы film
+     */
+    public void hydrate(Collection<Film> films) {
+        log.debug("hydrate({})", films.size());
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            if (filmsById.putIfAbsent(film.getId(), film) == null) {
+                film.setGenres(new LinkedHashSet<>());
+                film.setDirectors(new LinkedHashSet<>());
+            }
+        }
+        Map<Integer, Mpa> mpaById = getMpa();
+        List<Long> ids = new ArrayList<>(filmsById.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            fillGenres(filmsById, batch);
+            fillDirectors(filmsById, batch);
+        }
+        for (Film film : films) {
+            Film hydrated = filmsById.get(film.getId());
+            if (hydrated != film) {
+                film.setGenres(hydrated.getGenres());
+                film.setDirectors(hydrated.getDirectors());
+            }
+            if (film.getMpa() != null) {
+                film.setMpa(mpaById.get(film.getMpa().getId()));
+            }
+        }
+        log.trace("Заполнены данные {} фильмов", filmsById.size());
+    }
+
+    /**
+     * Метод упорядочивает фильмы по убыванию количества лайков, при равенстве - по возрастанию идентификатора.
+     * Количество лайков всей пачки читается одним запросом {@link LikeDao#getLikesCount(Collection)}.
+     *
+     * @param films список фильмов
+     */
+    public void sortByLikes(List<Film> films) {
+        if (films.size() < 2) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            ids.add(film.getId());
+        }
+        LongIntHashMap likes = likeDao.getLikesCount(ids);
+        films.sort(Comparator.comparingInt((Film film) -> -likes.get(film.getId()))
+                .thenComparingLong(Film::getId));
+    }
+
+    private Map<Integer, Mpa> getMpa() {
+        Map<Integer, Mpa> mpaById = new HashMap<>();
+        for (Mpa mpa : mpaDao.getListMpa()) {
+            mpaById.put(mpa.getId(), mpa);
+        }
+        return mpaById;
+    }
+
+    private void fillGenres(Map<Long, Film> filmsById, List<Long> ids) {
+        List<long[]> links = getLinks("SELECT film_id, genre_id AS ref_id FROM film_genre WHERE film_id IN (:ids) " +
+                "ORDER BY film_id, genre_id", ids);
+        for (long[] link : links) {
+            filmsById.get(link[0]).getGenres().add(genreDao.getGenreById((int) link[1]));
+        }
+    }
+
+    private void fillDirectors(Map<Long, Film> filmsById, List<Long> ids) {
+        List<long[]> links = getLinks("SELECT film_id, director_id AS ref_id FROM film_directors " +
+                "WHERE film_id IN (:ids) ORDER BY film_id, director_id", ids);
+        for (long[] link : links) {
+            filmsById.get(link[0]).getDirectors().add(directorDao.getDirectorById((int) link[1]));
+        }
+    }
+
+    /**
+     * Метод читает пары (идентификатор фильма, идентификатор справочника) из таблицы связей. Справочники
+     * запрашиваются уже после закрытия выборки, чтобы промах кэша не занимал второе соединение с БД.
+     */
+    private List<long[]> getLinks(String sql, List<Long> ids) {
+        return jdbcTemplate.query(sql, Map.of("ids", ids),
+                (rs, rowNum) -> new long[]{rs.getLong("film_id"), rs.getLong("ref_id")});
+    }
+}
@@ -9,7 +9,7 @@ import java.util.HashSet;
 import java.util.List;
 
 /**
- * Интерфейс для работы с хранилищем фильмов, реализован в {@link InMemoryFilmStorage}
+ * Интерфейс для работы с хранилищем фильмов, реализован в {@link InMemoryFilmStorage} и {@link FilmDbStorage}
  */
 public interface FilmStorage {
     /**
@@ -35,6 +35,14 @@ public interface FilmStorage {
      */
     void deleteFilm(Long id);
 
+    /**
+     * Метод удаления режиссера из фильмов хранилища. Вызывается после удаления режиссера из таблицы directors,
+     * связи в таблице film_directors удаляет каскад.
+     *
+     * @param directorId идентификатор удаленного режиссера
+     */
+    void deleteDirector(Integer directorId);
+
     /**
      * Запрос коллекции фильмов
      *
@@ -42,6 +50,15 @@ public interface FilmStorage {
      */
     Collection<Film> getFilms();
 
+    /**
+     * Запрос страницы фильмов, упорядоченных по идентификатору
+     *
+     * @param afterId идентификатор фильма, после которого начинается страница
+     * @param limit   максимальное количество фильмов на странице
+     * @return возвращает список фильмов с идентификатором больше afterId
+     */
+    List<Film> getFilmsPage(Long afterId, int limit);
+
     /**
      * Запрос фильма по id
      *
@@ -50,6 +67,22 @@ public interface FilmStorage {
      */
     Film getFilmById(Long id);
 
+    /**
+     * Метод проверки существования фильма без загрузки его данных
+     *
+     * @param id идентификатор фильма
+     * @return возвращает true - если фильм найден, false - если не найден
+     */
+    boolean isContains(Long id);
+
+    /**
+     * Запрос фильмов по списку идентификаторов
+     *
+     * @param ids идентификаторы фильмов
+     * @return возвращает найденные фильмы в порядке переданных идентификаторов
+     */
+    List<Film> getFilmsByIds(List<Long> ids);
+
     /**
      * Метод получения жанра по идентификатору фильма
      *
@@ -74,40 +107,11 @@ public interface FilmStorage {
     Collection<Film> getFilmsByUser(Long id);
 
     /**
-     * Метод получения списка популярных фильмов по идентификатору жанра
-     *
-     * @param count ограничение на колличество фильмов возвращаемых методом
-     * @param genreId идентификатор жанра
-     * @return возвращает коллекцию объектов типа фильм
-     */
-    List<Film> getPopularFilmsByGenre(int count, int genreId);
-
-    /**
-     * Метод получения списка популярных фильмов по году релиза фильма
-     *
-     * @param count ограничение на колличество фильмов возвращаемых методом
-     * @param year год
-     * @return возвращает коллекцию объектов типа фильм
-     */
-    List<Film> getPopularFilmsByYear(int count, int year);
-
-    /**
-     * Метод получения списка популярных фильмов по идентификатору жанра и году релиза
-     *
-     * @param count ограничение на колличество фильмов возвращаемых методом
-     * @param genreId идентификатор жанра
-     * @param year год
-     * @return возвращает коллекцию объектов типа фильм
-     */
-    List<Film> getPopularFilmsByGenreAndYear(int count, int genreId, int year);
-
-    /**
-     * поиск по названию фильмов и по режиссёру
+     * Метод получения общих фильмов двух пользователей одним запросом
      *
-     * @param query — текст для поиска,
-     * @param by    — может принимать значения director (поиск по режиссёру), title (поиск по названию),
-     *              либо оба значения через запятую при поиске одновременно и по режиссеру и по названию.
-     * @return возвращает список фильмов с количеством лайков (От большего к меньшему)
+     * @param userId   идентификатор первого пользователя
+     * @param friendId идентификатор второго пользователя
+     * @return возвращает фильмы, понравившиеся обоим пользователям, в произвольном порядке
      */
-    List<Film> getSearchResult(String query, String by);
+    List<Film> getCommonFilms(Long userId, Long friendId);
 }
@@ -1,154 +1,375 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.PutMapping;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
+import ru.yandex.practicum.filmorate.assistant.LongObjectHashMap;
+import ru.yandex.practicum.filmorate.assistant.SortedIds;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.SortBy;
-import ru.yandex.practicum.filmorate.validation.Validation;
+import ru.yandex.practicum.filmorate.storage.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
 
-import javax.validation.Valid;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс-хранилище реализующий интерфейс {@link FilmStorage} для хранения и обновления фильмов со свойствами <b>films<b/> и <b>id<b/>
+ * Класс-хранилище фильмов в памяти, реализующий интерфейс {@link FilmStorage}. Используется вместо
+ * {@link FilmDbStorage} в профиле inmemory. Фильмы хранятся в таблице с ключами long без упаковки, рядом
+ * поддерживается индекс фильмов по режиссерам и упорядоченный список идентификаторов для постраничной
+ * выдачи. Лайки берутся из {@link LikeMatrix}. Чтения выполняются параллельно, изменения - под блокировкой записи;
+ * наружу отдаются копии фильмов, поэтому их изменение не затрагивает хранилище. Для каждого фильма в таблице film
+ * хранится строка с идентификатором, названием и рейтингом, поэтому внешние ключи связей фильма проверяются,
+ * а при удалении фильма его жанры, режиссеры, лайки и отзывы удаляют каскады БД. Если транзакция, в которой
+ * фильм добавлялся или изменялся, откатывается, хранилище возвращается к прежнему состоянию.
  */
 @Slf4j
+@Profile("inmemory")
 @Component("InMemoryFilmStorage")
+@RequiredArgsConstructor
 public class InMemoryFilmStorage implements FilmStorage {
-    /**
-     * Поле хранилище фильмов
-     */
-    private final Map<Long, Film> films = new HashMap<>();
+    private final LikeMatrix likeMatrix;
+    private final GenreDao genreDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongObjectHashMap<Film> films = new LongObjectHashMap<>();
+    private final Map<Integer, long[]> filmsByDirector = new HashMap<>();
     /**
      * Поле счетчик идентификаторов фильмов
      */
-    private Long id = 1L;
-
+    private final AtomicLong id = new AtomicLong();
     /**
-     * Метод добавление фильма.
-     *
-     * @param film информация о фильме.
-     * @return возвращает созданный фильм
+     * Поле с идентификаторами фильмов по возрастанию: идентификаторы выдаются под блокировкой записи,
+     * поэтому новые фильмы добавляются в конец
      */
-    @PostMapping
-    public Film addFilm(@Valid @RequestBody Film film) {
-        Validation.validationFilm(film);
-        log.debug("Фильм добавлен");
-        film.setId(id);
-        films.put(film.getId(), film);
-        id++;
-        return film;
-    }
+    private long[] filmIds = new long[16];
+    private int filmCount;
 
-    /**
-     * Метод обновления фильма.
-     *
-     * @param film информация о фильме.
-     * @return возвращает обновленный фильм
-     * @throws NotFoundException генерирует 404 ошибку в случае если фильма не существует.
-     */
-    @PutMapping
-    public Film put(@Valid @RequestBody Film film) {
-        Long filmId = film.getId();
+    @Override
+    public Film addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Film theFilm = copy(film);
+            theFilm.setId(id.incrementAndGet());
+            jdbcTemplate.update("INSERT INTO film (film_id, name, mpa_id) VALUES (?, ?, ?)",
+                    theFilm.getId(), theFilm.getName(), mpaId(theFilm));
+            films.put(theFilm.getId(), theFilm);
+            if (filmCount == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, filmCount << 1);
+            }
+            filmIds[filmCount++] = theFilm.getId();
+            index(theFilm);
+            onRollback(() -> remove(theFilm.getId()));
+            log.trace("Добавлен новый фильм: {}", theFilm);
+            return copy(theFilm);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        Validation.validationFilm(film);
-        if (films.containsKey(filmId)) {
-            log.debug("Фильм обновлен");
-            films.put(filmId, film);
-        } else {
-            log.debug(String.format("Фильм с id %s не существует", filmId));
-            throw new NotFoundException("Данного фильма нет в базе данных");
+    @Override
+    public Film updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Film previous = films.get(film.getId());
+            if (previous == null) {
+                log.debug("Фильм не существует");
+                throw new NotFoundException(String.format("Фильма с id %d не существует", film.getId()));
+            }
+            jdbcTemplate.update("UPDATE film SET name = ?, mpa_id = ? WHERE film_id = ?",
+                    film.getName(), mpaId(film), film.getId());
+            replace(copy(film));
+            onRollback(() -> {
+                lock.writeLock().lock();
+                try {
+                    replace(previous);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            log.trace("Обновлён фильм : {}", film);
+            return film;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return film;
     }
 
-    /**
-     * Заглушка
-     */
     @Override
     public void deleteFilm(Long id) {
+        jdbcTemplate.update("DELETE FROM film WHERE film_id = ?", id);
+        if (remove(id)) {
+            log.debug("Фильм удален");
+        }
     }
 
-    /**
-     * Метод получения списка фильмов.
-     *
-     * @return films возвращает коллекцию фильмов.
-     */
-    @GetMapping
-    public Collection<Film> getFilm() {
-        log.debug("Запрошен список фильмов, их количество: {} ", films.size());
-        return films.values();
+    @Override
+    public void deleteDirector(Integer directorId) {
+        lock.writeLock().lock();
+        try {
+            for (long filmId : filmsByDirector.getOrDefault(directorId, SortedIds.EMPTY)) {
+                films.get(filmId).getDirectors().removeIf(director -> directorId.equals(director.getId()));
+            }
+            filmsByDirector.remove(directorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    /**
-     * Метод получения фильма по id.
-     *
-     * @param id айди фильма.
-     * @return возвращает фильм с указанным id
-     * @throws NotFoundException генерирует 404 ошибку в случае если фильма не существует.
-     */
-    @GetMapping()
-    public Film getFilmById(Long id) {
-        if (films.containsKey(id)) {
-            log.debug("Запрошен фильм с id : {} ", id);
-            return films.get(id);
-        } else {
-            log.debug("Фильм не существует");
-            throw new NotFoundException(String.format("Фильм с id %s не существует", id));
+    @Override
+    public Collection<Film> getFilms() {
+        lock.readLock().lock();
+        try {
+            return get(Arrays.copyOf(filmIds, filmCount));
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
-    /**
-     * Заглушка
-     */
     @Override
-    public Collection<Film> getFilms() {
-        return Collections.emptyList();
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = Arrays.binarySearch(filmIds, 0, filmCount, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            return get(Arrays.copyOfRange(filmIds, from, Math.min(filmCount, from + limit)));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        return null;
+    public Film getFilmById(Long id) {
+        lock.readLock().lock();
+        try {
+            Film film = films.get(id);
+            if (film == null) {
+                log.debug("Фильм не существует");
+                throw new NotFoundException(String.format("Фильма с id %d не существует", id));
+            }
+            return copy(film);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
-    public Collection<Film> getFilmsByUser(Long id) {
-        return Collections.emptyList();
+    public boolean isContains(Long id) {
+        lock.readLock().lock();
+        try {
+            return films.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Film> found = new ArrayList<>(ids.size());
+            for (Long filmId : ids) {
+                Film film = films.get(filmId);
+                if (film != null) {
+                    found.add(copy(film));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public HashSet<Genre> getGenresByFilm(Long filmId) {
-        return null;
+        Set<Genre> filmGenres;
+        lock.readLock().lock();
+        try {
+            Film film = films.get(filmId);
+            filmGenres = film == null || film.getGenres() == null ? Set.of() : film.getGenres();
+        } finally {
+            lock.readLock().unlock();
+        }
+        HashSet<Genre> genres = new HashSet<>();
+        for (Genre genre : filmGenres) {
+            genres.add(genreDao.getGenreById(genre.getId()));
+        }
+        return genres;
     }
 
     @Override
     public List<Film> getDirectorFilms(Integer directorId, SortBy sortBy) {
-        return null;
+        List<Film> directorFilms = get(filmsByDirector, directorId);
+        if (sortBy == SortBy.YEAR) {
+            directorFilms.sort(Comparator.comparing((Film film) -> film.getReleaseDate().getYear())
+                    .thenComparing(Film::getId));
+            return directorFilms;
+        }
+        return sortByLikes(directorFilms, directorFilms.size());
     }
 
     @Override
-    public List<Film> getPopularFilmsByGenre(int count, int genreId) {
-        return Collections.emptyList();
+    public Collection<Film> getFilmsByUser(Long id) {
+        return getFilmsByIds(asList(likeMatrix.getFilms(id)));
     }
 
     @Override
-    public List<Film> getPopularFilmsByYear(int count, int year) {
-        return Collections.emptyList();
+    public List<Film> getCommonFilms(Long userId, Long friendId) {
+        long[] common = SortedIds.intersect(likeMatrix.getFilms(userId), likeMatrix.getFilms(friendId));
+        return getFilmsByIds(asList(common));
     }
 
-    @Override
-    public List<Film> getPopularFilmsByGenreAndYear(int count, int genreId, int year) {
-        return Collections.emptyList();
+    /**
+     * Метод сортирует фильмы по убыванию количества лайков, при равенстве - по возрастанию идентификатора
+     *
+     * @param films фильмы
+     * @param count количество возвращаемых фильмов
+     * @return возвращает не больше count самых популярных фильмов
+     */
+    private List<Film> sortByLikes(List<Film> films, int count) {
+        long[] ids = new long[films.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = films.get(i).getId();
+        }
+        LongIntHashMap likes = likeMatrix.getLikesCount(ids);
+        films.sort(Comparator.comparingInt((Film film) -> likes.get(film.getId())).reversed()
+                .thenComparing(Film::getId));
+        return films.size() > count ? new ArrayList<>(films.subList(0, count)) : films;
     }
 
-    @Override
-    public List<Film> getSearchResult(String query, String by) {
-        return null;
+    /**
+     * Метод удаляет фильм из таблицы, индекса режиссеров и списка идентификаторов
+     *
+     * @param id идентификатор фильма
+     * @return возвращает true - если фильм был в хранилище
+     */
+    private boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Film film = films.remove(id);
+            if (film == null) {
+                return false;
+            }
+            unindex(film);
+            int index = Arrays.binarySearch(filmIds, 0, filmCount, id);
+            System.arraycopy(filmIds, index + 1, filmIds, index, filmCount - index - 1);
+            filmCount--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replace(Film film) {
+        Film previous = films.put(film.getId(), film);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(film);
+    }
+
+    /**
+     * Метод выполняет действие, если текущая транзакция будет откачена
+     *
+     * @param action действие, возвращающее хранилище к состоянию до транзакции
+     */
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static Integer mpaId(Film film) {
+        return film.getMpa() == null ? null : film.getMpa().getId();
+    }
+
+    private List<Film> get(Map<Integer, long[]> index, Integer key) {
+        lock.readLock().lock();
+        try {
+            return get(index.getOrDefault(key, SortedIds.EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Film> get(long[] ids) {
+        lock.readLock().lock();
+        try {
+            List<Film> found = new ArrayList<>(ids.length);
+            for (long filmId : ids) {
+                Film film = films.get(filmId);
+                if (film != null) {
+                    found.add(copy(film));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Film film) {
+        if (film.getDirectors() != null) {
+            film.getDirectors().forEach(director -> filmsByDirector.merge(director.getId(),
+                    new long[]{film.getId()}, (ids, added) -> SortedIds.insert(ids, film.getId())));
+        }
+    }
+
+    private void unindex(Film film) {
+        if (film.getDirectors() != null) {
+            film.getDirectors().forEach(director -> filmsByDirector.computeIfPresent(director.getId(),
+                    (key, ids) -> emptyToNull(SortedIds.remove(ids, film.getId()))));
+        }
+    }
+
+    private static long[] emptyToNull(long[] ids) {
+        return ids.length == 0 ? null : ids;
+    }
+
+    private static List<Long> asList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long filmId : ids) {
+            list.add(filmId);
+        }
+        return list;
+    }
+
+    private static Film copy(Film film) {
+        Film copy = new Film(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration());
+        copy.setId(film.getId());
+        if (film.getMpa() != null) {
+            copy.setMpa(new Mpa(film.getMpa().getId(), film.getMpa().getName()));
+        }
+        if (film.getGenres() != null) {
+            copy.setGenres(new HashSet<>(film.getGenres()));
+        }
+        if (film.getDirectors() != null) {
+            copy.setDirectors(new HashSet<>(film.getDirectors()));
+        }
+        return copy;
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.storage.dao.film_reviews;
 
 /**
  * Интерфейс для работы с логикой касающиеся отзывов реализован в {@link FilmReviewDaoImpl}.
+ * Методы возвращают изменение полезности отзыва, вызванное переходом голоса пользователя
+ * (нет голоса, лайк, дизлайк): повторный голос не меняет полезность, смена лайка на дизлайк меняет её на два.
  */
 public interface FilmReviewDao {
     /**
@@ -9,33 +11,37 @@ public interface FilmReviewDao {
      *
      * @param reviewId отзыв, которому добавляют лайк.
      * @param userId пользователь, добавляющий лайк.
+     * @return изменение полезности отзыва.
      */
-    void addLikeToReview(Integer reviewId, Long userId);
+    int addLikeToReview(Integer reviewId, Long userId);
 
     /**
      * Удаление лайка у отзыва
      *
      * @param reviewId отзыв, которому удаляют лайк.
      * @param userId пользователь, удаляющий лайк.
+     * @return изменение полезности отзыва.
      */
 
-    void deleteLikeFromReview(Integer reviewId, Long userId);
+    int deleteLikeFromReview(Integer reviewId, Long userId);
 
     /**
      * Добавление дизлайка отзыву
      *
      * @param reviewId отзыв, которому добавляют дизлайк.
      * @param userId пользователь, добавляющий дизлайк.
+     * @return изменение полезности отзыва.
      */
 
-    void addDislikeToReview(Integer reviewId, Long userId);
+    int addDislikeToReview(Integer reviewId, Long userId);
 
     /**
      * Удаление дизлайка отзыву
      *
      * @param reviewId отзыв, которому удаляют дизлайк.
      * @param userId пользователь,удаляющий дизлайк.
+     * @return изменение полезности отзыва.
      */
 
-    void deleteDislikeFromReview(Integer reviewId, Long userId);
-}
\ No newline at end of file
+    int deleteDislikeFromReview(Integer reviewId, Long userId);
+}
@@ -2,10 +2,14 @@ package ru.yandex.practicum.filmorate.storage.dao.film_reviews;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.storage.mapper.FilmReviewMapper;
 
+/**
+ * Переход голоса определяется по количеству строк, измененных условными запросами, а не чтением текущего
+ * голоса, поэтому одновременные голоса одного пользователя не учитываются дважды.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @Component
@@ -13,39 +17,53 @@ public class FilmReviewDaoImpl implements FilmReviewDao {
     private final JdbcTemplate jdbcTemplate;
 
     @Override
-    public void addLikeToReview(Integer reviewId, Long userId) {
-        jdbcTemplate.update("MERGE INTO film_reviews (review_id, user_id, is_positive) VALUES (?, ?, ?)",
-                reviewId, userId, Boolean.TRUE);
-        updateUsefulnessScore(reviewId);
+    public int addLikeToReview(Integer reviewId, Long userId) {
+        return vote(reviewId, userId, true);
     }
 
     @Override
-    public void deleteLikeFromReview(Integer reviewId, Long userId) {
-        jdbcTemplate.update("DELETE FROM film_reviews WHERE review_id=? AND user_id=?");
-        updateUsefulnessScore(reviewId);
+    public int deleteLikeFromReview(Integer reviewId, Long userId) {
+        return deleteVote(reviewId, userId, true);
     }
 
     @Override
-    public void addDislikeToReview(Integer reviewId, Long userId) {
-        jdbcTemplate.update("MERGE INTO film_reviews (review_id, user_id, is_positive) VALUES (?, ?, ?)",
-                reviewId, userId, Boolean.FALSE);
-        updateUsefulnessScore(reviewId);
+    public int addDislikeToReview(Integer reviewId, Long userId) {
+        return vote(reviewId, userId, false);
     }
 
     @Override
-    public void deleteDislikeFromReview(Integer reviewId, Long userId) {
-        jdbcTemplate.update("DELETE FROM film_reviews WHERE review_id=? AND user_id=?");
-        updateUsefulnessScore(reviewId);
+    public int deleteDislikeFromReview(Integer reviewId, Long userId) {
+        return deleteVote(reviewId, userId, false);
     }
 
-    private void updateUsefulnessScore(Integer reviewId) {
-        int usefulnessScore = getUsefulnessScore(reviewId);
-        jdbcTemplate.update("UPDATE reviews SET useful=? WHERE review_id=?", usefulnessScore, reviewId);
+    private int vote(Integer reviewId, Long userId, boolean isPositive) {
+        int score = isPositive ? 1 : -1;
+        while (true) {
+            if (jdbcTemplate.update("UPDATE film_reviews SET is_positive=? " +
+                    "WHERE review_id=? AND user_id=? AND is_positive=?", isPositive, reviewId, userId, !isPositive) > 0) {
+                log.trace("Пользователь {} изменил голос за отзыв {}", userId, reviewId);
+                return 2 * score;
+            }
+            try {
+                jdbcTemplate.update("INSERT INTO film_reviews (review_id, user_id, is_positive) VALUES (?, ?, ?)",
+                        reviewId, userId, isPositive);
+                log.trace("Пользователь {} проголосовал за отзыв {}", userId, reviewId);
+                return score;
+            } catch (DuplicateKeyException exception) {
+                Boolean current = jdbcTemplate.query("SELECT is_positive FROM film_reviews " +
+                                "WHERE review_id=? AND user_id=?", (rs, rowNum) -> rs.getBoolean("is_positive"),
+                        reviewId, userId).stream().findAny().orElse(null);
+                if (current != null && current == isPositive) {
+                    return 0;
+                }
+            }
+        }
     }
 
-    private int getUsefulnessScore(Integer reviewId) {
-        return jdbcTemplate.query("SELECT SUM(CASE WHEN is_positive = TRUE THEN 1 ELSE -1 END) useful " +
-                "FROM film_reviews WHERE review_id =?", new FilmReviewMapper(), reviewId)
-                .stream().findAny().orElse(0);
+    private int deleteVote(Integer reviewId, Long userId, boolean isPositive) {
+        int deleted = jdbcTemplate.update("DELETE FROM film_reviews WHERE review_id=? AND user_id=? AND is_positive=?",
+                reviewId, userId, isPositive);
+        log.trace("Пользователь {} удалил голос за отзыв {}: {}", userId, reviewId, deleted);
+        return deleted > 0 ? (isPositive ? -1 : 1) : 0;
     }
 }
@@ -1,11 +1,14 @@
 package ru.yandex.practicum.filmorate.storage.dao.friend;
 
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.user.InMemoryUserStorage;
 
 import java.util.List;
 
 /**
- * Интерфейс для работы с логикой касающиеся дружбы, реализован в {@link FriendDaoImpl}
+ * Интерфейс для работы с логикой касающиеся дружбы, реализован в {@link FriendDaoImpl}, в профиле inmemory -
+ * в {@link InMemoryUserStorage}
  */
 public interface FriendDao {
     /**
@@ -44,4 +47,30 @@ public interface FriendDao {
      * @throws NotFoundException генерирует 404 ошибку в случае если пользователя не существует.
      */
     List<Long> getFriend(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Получение списка общих друзей двух пользователей одним запросом.
+     *
+     * @param userId  id первого пользователя.
+     * @param otherId id второго пользователя.
+     * @return возвращает общих друзей по возрастанию id или пустой список если их нет.
+     */
+    List<User> getMutualFriends(Long userId, Long otherId);
+
+    /**
+     * Получение списка пользователей, добавивших пользователя в друзья (подписчиков его событий).
+     *
+     * @param userId id пользователя.
+     * @return возвращает список id подписчиков или пустой список если их нет.
+     */
+    List<Long> getFollowers(Long userId);
+
+    /**
+     * Получение друзей пользователя, у которых больше заданного количества подписчиков.
+     *
+     * @param userId    id пользователя.
+     * @param threshold количество подписчиков.
+     * @return возвращает список id таких друзей или пустой список если их нет.
+     */
+    List<Long> getPopularFriends(Long userId, int threshold);
+}
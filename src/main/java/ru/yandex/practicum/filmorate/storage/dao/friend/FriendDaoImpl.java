@@ -2,15 +2,19 @@ package ru.yandex.practicum.filmorate.storage.dao.friend;
 
 import lombok.AllArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Friend;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.mapper.FriendMapper;
+import ru.yandex.practicum.filmorate.storage.mapper.UserMapper;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
+@Profile("!inmemory")
 @Component
 public class FriendDaoImpl implements FriendDao {
     private final JdbcTemplate jdbcTemplate;
@@ -47,4 +51,24 @@ public class FriendDaoImpl implements FriendDao {
                 .map(Friend::getFriendId)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<User> getMutualFriends(Long userId, Long otherId) {
+        return jdbcTemplate.query("SELECT u.* FROM friends AS f1 " +
+                "INNER JOIN friends AS f2 ON f2.friend_id = f1.friend_id AND f2.user_id = ? " +
+                "INNER JOIN users AS u ON u.user_id = f1.friend_id " +
+                "WHERE f1.user_id = ? ORDER BY u.user_id", new UserMapper(), otherId, userId);
+    }
+
+    @Override
+    public List<Long> getFollowers(Long userId) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM friends WHERE friend_id=?", Long.class, userId);
+    }
+
+    @Override
+    public List<Long> getPopularFriends(Long userId, int threshold) {
+        return jdbcTemplate.queryForList("SELECT f.friend_id FROM friends AS f " +
+                "INNER JOIN friends AS followers ON followers.friend_id = f.friend_id " +
+                "WHERE f.user_id=? GROUP BY f.friend_id HAVING COUNT(*) > ?", Long.class, userId, threshold);
+    }
+}
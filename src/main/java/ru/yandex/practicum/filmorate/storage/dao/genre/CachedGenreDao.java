@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.dao.genre;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс-кэш жанров поверх {@link GenreDaoImpl}. Справочник жанров не меняется во время работы приложения,
+ * поэтому жанры читаются из БД один раз, а операции с жанрами фильмов передаются в {@link GenreDaoImpl}.
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+public class CachedGenreDao implements GenreDao {
+    private final GenreDaoImpl genreDao;
+    private final Map<Integer, Genre> genreById = new ConcurrentHashMap<>();
+    private volatile Set<Genre> genres;
+    /**
+     * Поле со статистикой обращений к кэшу
+     */
+    @Getter
+    private final CacheStats stats = new CacheStats("genre");
+
+    @Override
+    public Genre getGenreById(Integer id) {
+        Genre genre = genreById.get(id);
+        if (genre != null) {
+            stats.hit();
+            return genre;
+        }
+        stats.miss();
+        genre = genreDao.getGenreById(id);
+        genreById.put(id, genre);
+        log.trace("Жанр {} добавлен в кэш, {}", genre, stats);
+        return genre;
+    }
+
+    @Override
+    public Set<Genre> getGenres() {
+        Set<Genre> all = genres;
+        if (all != null) {
+            stats.hit();
+            return new LinkedHashSet<>(all);
+        }
+        stats.miss();
+        all = genreDao.getGenres();
+        all.forEach(genre -> genreById.put(genre.getId(), genre));
+        genres = all;
+        return new LinkedHashSet<>(all);
+    }
+
+    @Override
+    public void addGenres(Long filmId, HashSet<Genre> genres) {
+        genreDao.addGenres(filmId, genres);
+    }
+
+    @Override
+    public void updateGenres(Long filmId, HashSet<Genre> genres) {
+        genreDao.updateGenres(filmId, genres);
+    }
+}
@@ -9,8 +9,12 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.mapper.GenreMapper;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @AllArgsConstructor
@@ -43,9 +47,7 @@ public class GenreDaoImpl implements GenreDao {
     @Override
     public void addGenres(Long filmId, HashSet<Genre> genres) {
         log.debug("addGenres({}, {})", filmId, genres);
-        for (Genre genre : genres) {
-            jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmId, genre.getId());
-        }
+        insertGenres(filmId, getGenreIds(genres));
         log.trace("Фильму с идентификатором {} были присвоены жанры: {}", filmId, genres);
     }
 
@@ -55,11 +57,46 @@ public class GenreDaoImpl implements GenreDao {
         log.trace("У фильма {} были удалены жанры", filmId);
     }
 
+    /**
+     * Метод обновляет жанры фильма, удаляя и добавляя только изменившиеся связи
+     */
     @Override
     public void updateGenres(Long filmId, HashSet<Genre> genres) {
         log.debug("updateGenres({}, {})", filmId, genres);
-        deleteGenres(filmId);
-        addGenres(filmId, genres);
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genre WHERE film_id=?", Integer.class, filmId));
+        Set<Integer> target = getGenreIds(genres);
+        List<Integer> removed = new ArrayList<>(current);
+        removed.removeAll(target);
+        List<Integer> added = new ArrayList<>(target);
+        added.removeAll(current);
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_genre WHERE film_id=? AND genre_id=?", removed,
+                    removed.size(), (statement, genreId) -> {
+                        statement.setLong(1, filmId);
+                        statement.setInt(2, genreId);
+                    });
+        }
+        insertGenres(filmId, added);
         log.trace("У фильма {} были обновлены жанры: {}", filmId, genres);
     }
+
+    private void insertGenres(Long filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", genreIds,
+                genreIds.size(), (statement, genreId) -> {
+                    statement.setLong(1, filmId);
+                    statement.setInt(2, genreId);
+                });
+    }
+
+    private static Set<Integer> getGenreIds(Set<Genre> genres) {
+        Set<Integer> genreIds = new LinkedHashSet<>();
+        for (Genre genre : genres) {
+            genreIds.add(genre.getId());
+        }
+        return genreIds;
+    }
 }
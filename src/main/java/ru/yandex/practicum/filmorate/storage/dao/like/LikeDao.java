@@ -1,33 +1,55 @@
 package ru.yandex.practicum.filmorate.storage.dao.like;
 
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Интерфейс для работы с логикой касающиеся лайков, реализован в {@link LikeDaoImpl}
  */
 public interface LikeDao {
     /**
-     * Добавление лайка фильму.
+     * Добавление лайка фильму. Вместе с лайком увеличивается счетчик лайков фильма.
      *
      * @param userId id пользователя, добавляющего лайк.
      * @param filmId id фильма, кому ставим лайк.
+     * @return возвращает true если лайк был добавлен, false если пользователь уже ставил лайк этому фильму
      * @throws NotFoundException генерирует ошибку 404 если введен не верный id пользователя или фильма.
      */
-    void addLike(Long userId, Long filmId);
+    boolean addLike(Long userId, Long filmId);
 
     /**
-     * Удаление лайка у фильма.
+     * Удаление лайка у фильма. Вместе с лайком уменьшается счетчик лайков фильма.
      *
      * @param userId id пользователя, удаляющего лайк.
      * @param filmId id фильма, у кого удаляем лайк.
+     * @return возвращает true если лайк был удален
      * @throws NotFoundException генерирует ошибку 404 если введен не верный id пользователя или фильма.
      */
-    void deleteLike(Long userId, Long filmId);
+    boolean deleteLike(Long userId, Long filmId);
+
+    /**
+     * Удаление всех лайков пользователя с уменьшением счетчиков лайков у фильмов.
+     *
+     * @param userId id пользователя, чьи лайки удаляются.
+     * @return возвращает список идентификаторов фильмов, у которых был удален лайк
+     */
+    List<Long> deleteLikesByUser(Long userId);
+
+    /**
+     * Возвращает количество лайков для набора фильмов одним сгруппированным запросом на каждую пачку id
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return возвращает таблицу идентификатор фильма - количество лайков, фильмов без лайков в ней нет
+     */
+    LongIntHashMap getLikesCount(Collection<Long> filmIds);
 
     /**
-     * Проверяет лайки методом подсчета, и подготавливает данные для компаратора
+     * Возвращает количество лайков всех фильмов одним сгруппированным запросом
      *
-     * @param filmId идентификатор фильма для подсчета лайков.
+     * @return возвращает таблицу идентификатор фильма - количество лайков, фильмов без лайков в ней нет
      */
-    int checkLikes(Long filmId);
+    LongIntHashMap getLikesCount();
 }
@@ -2,29 +2,81 @@ package ru.yandex.practicum.filmorate.storage.dao.like;
 
 
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @Component
 public class LikeDaoImpl implements LikeDao {
+    private static final int BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     @Override
-    public void addLike(Long userId, Long filmId) {
-        jdbcTemplate.update("INSERT INTO likes (user_id, film_id) VALUES (?,?)", userId, filmId);
+    @Transactional
+    public boolean addLike(Long userId, Long filmId) {
+        try {
+            jdbcTemplate.update("INSERT INTO likes (user_id, film_id) VALUES (?,?)", userId, filmId);
+        } catch (DuplicateKeyException exception) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE film SET likes_count = likes_count + 1 WHERE film_id = ?", filmId);
+        return true;
     }
 
     @Override
-    public void deleteLike(Long userId, Long filmId) {
-        jdbcTemplate.update("DELETE FROM likes WHERE user_id = ? AND film_id = ?", userId, filmId);
+    @Transactional
+    public boolean deleteLike(Long userId, Long filmId) {
+        int deleted = jdbcTemplate.update("DELETE FROM likes WHERE user_id = ? AND film_id = ?", userId, filmId);
+        if (deleted > 0) {
+            jdbcTemplate.update("UPDATE film SET likes_count = likes_count - ? WHERE film_id = ?", deleted, filmId);
+        }
+        return deleted > 0;
     }
 
     @Override
-    public int checkLikes(Long filmId) {
-        return Objects.requireNonNull(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id=?",
-                                      Integer.class, filmId));
+    @Transactional
+    public List<Long> deleteLikesByUser(Long userId) {
+        List<Long> filmIds = jdbcTemplate.queryForList("SELECT film_id FROM likes WHERE user_id = ?",
+                Long.class, userId);
+        jdbcTemplate.update("UPDATE film SET likes_count = likes_count - " +
+                "(SELECT COUNT(*) FROM likes AS l WHERE l.film_id = film.film_id AND l.user_id = ?) " +
+                "WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)", userId, userId);
+        jdbcTemplate.update("DELETE FROM likes WHERE user_id = ?", userId);
+        return filmIds;
+    }
+
+    @Override
+    public LongIntHashMap getLikesCount(Collection<Long> filmIds) {
+        LongIntHashMap likes = new LongIntHashMap(filmIds.size());
+        List<Long> ids = new ArrayList<>(filmIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            namedJdbcTemplate.query("SELECT film_id, COUNT(*) AS likes FROM likes WHERE film_id IN (:ids) " +
+                            "GROUP BY film_id",
+                    Map.of("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()))),
+                    rs -> {
+                        likes.put(rs.getLong("film_id"), rs.getInt("likes"));
+                    });
+        }
+        return likes;
+    }
+
+    @Override
+    public LongIntHashMap getLikesCount() {
+        LongIntHashMap likes = new LongIntHashMap();
+        jdbcTemplate.query("SELECT film_id, COUNT(*) AS likes FROM likes GROUP BY film_id",
+                rs -> {
+                    likes.put(rs.getLong("film_id"), rs.getInt("likes"));
+                });
+        return likes;
     }
 }
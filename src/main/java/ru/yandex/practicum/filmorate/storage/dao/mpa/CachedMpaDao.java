@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.dao.mpa;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс-кэш рейтингов поверх {@link MpaDaoImpl}. Таблица рейтингов маленькая и не меняется во время работы
+ * приложения, поэтому рейтинги читаются из БД один раз.
+ */
+@Slf4j
+@Primary
+@Component
+@RequiredArgsConstructor
+public class CachedMpaDao implements MpaDao {
+    private final MpaDaoImpl mpaDao;
+    private final Map<Integer, Mpa> mpaById = new ConcurrentHashMap<>();
+    private volatile List<Mpa> listMpa;
+    /**
+     * Поле со статистикой обращений к кэшу
+     */
+    @Getter
+    private final CacheStats stats = new CacheStats("mpa");
+
+    @Override
+    public Mpa getMpaById(Integer id) {
+        Mpa mpa = mpaById.get(id);
+        if (mpa != null) {
+            stats.hit();
+            return mpa;
+        }
+        stats.miss();
+        mpa = mpaDao.getMpaById(id);
+        mpaById.put(id, mpa);
+        log.trace("Рейтинг {} добавлен в кэш, {}", mpa, stats);
+        return mpa;
+    }
+
+    @Override
+    public List<Mpa> getListMpa() {
+        List<Mpa> list = listMpa;
+        if (list != null) {
+            stats.hit();
+            return new ArrayList<>(list);
+        }
+        stats.miss();
+        list = mpaDao.getListMpa();
+        list.forEach(mpa -> mpaById.put(mpa.getId(), mpa));
+        listMpa = list;
+        return new ArrayList<>(list);
+    }
+}
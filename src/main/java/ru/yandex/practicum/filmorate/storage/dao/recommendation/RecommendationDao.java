@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.dao.recommendation;
+
+import ru.yandex.practicum.filmorate.model.Recommendation;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс для работы с хранилищем снимков рекомендаций, реализован в {@link RecommendationDaoImpl}
+ */
+public interface RecommendationDao {
+    /**
+     * Метод сохраняет снимки рекомендаций, заменяя прежние снимки этих пользователей. Снимок без фильмов
+     * сохраняется одной строкой с пустым film_id
+     *
+     * @param recommendations снимки рекомендаций
+     */
+    void saveRecommendations(Collection<Recommendation> recommendations);
+
+    /**
+     * Метод возвращает все сохраненные снимки рекомендаций
+     *
+     * @return возвращает список снимков
+     */
+    List<Recommendation> getRecommendations();
+
+    /**
+     * Метод удаляет снимок рекомендаций пользователя
+     *
+     * @param userId идентификатор пользователя
+     */
+    void deleteRecommendations(Long userId);
+}
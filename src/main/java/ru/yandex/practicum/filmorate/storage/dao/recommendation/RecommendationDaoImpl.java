@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.dao.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Recommendation;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecommendationDaoImpl implements RecommendationDao {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void saveRecommendations(Collection<Recommendation> recommendations) {
+        log.debug("saveRecommendations({})", recommendations.size());
+        if (recommendations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM recommendations WHERE user_id=?", recommendations,
+                recommendations.size(), (statement, recommendation) -> {
+                    statement.setLong(1, recommendation.getUserId());
+                });
+        List<Object[]> rows = new ArrayList<>();
+        for (Recommendation recommendation : recommendations) {
+            Timestamp computedAt = Timestamp.valueOf(recommendation.getComputedAt());
+            List<Long> filmIds = recommendation.getFilmIds();
+            if (filmIds.isEmpty()) {
+                rows.add(new Object[]{recommendation.getUserId(), 0, recommendation.getSimilarUserId(), null,
+                        computedAt});
+            }
+            for (int position = 0; position < filmIds.size(); position++) {
+                rows.add(new Object[]{recommendation.getUserId(), position, recommendation.getSimilarUserId(),
+                        filmIds.get(position), computedAt});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO recommendations (user_id, position, similar_user_id, film_id, " +
+                "computed_at) VALUES (?,?,?,?,?)", rows);
+        log.trace("Сохранены рекомендации {} пользователей", recommendations.size());
+    }
+
+    @Override
+    public List<Recommendation> getRecommendations() {
+        log.debug("getRecommendations()");
+        Map<Long, Recommendation> recommendations = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT user_id, similar_user_id, film_id, computed_at FROM recommendations " +
+                "ORDER BY user_id, position", rs -> {
+                    long userId = rs.getLong("user_id");
+                    Recommendation recommendation = recommendations.get(userId);
+                    if (recommendation == null) {
+                        recommendation = new Recommendation(userId, rs.getLong("similar_user_id"), new ArrayList<>(),
+                                rs.getTimestamp("computed_at").toLocalDateTime());
+                        recommendations.put(userId, recommendation);
+                    }
+                    long filmId = rs.getLong("film_id");
+                    if (!rs.wasNull()) {
+                        recommendation.getFilmIds().add(filmId);
+                    }
+                });
+        log.trace("Загружены рекомендации {} пользователей", recommendations.size());
+        return new ArrayList<>(recommendations.values());
+    }
+
+    @Override
+    public void deleteRecommendations(Long userId) {
+        log.debug("deleteRecommendations({})", userId);
+        jdbcTemplate.update("DELETE FROM recommendations WHERE user_id=?", userId);
+        log.trace("Удалены рекомендации пользователя {}", userId);
+    }
+}
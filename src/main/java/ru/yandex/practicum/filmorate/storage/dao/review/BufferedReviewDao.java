@@ -0,0 +1,298 @@
+package ru.yandex.practicum.filmorate.storage.dao.review;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс-накопитель изменений полезности отзывов поверх {@link ReviewDaoImpl}. Голоса за отзыв записываются
+ * сразу, а изменения полезности суммируются в памяти по отзывам и записываются в БД пакетом фоновой задачей,
+ * поэтому серия голосов за популярный отзыв не обновляет одну и ту же строку reviews на каждый голос.
+ * Накопитель разбит на сегменты со своими блокировками, чтобы голоса за разные отзывы не ждали друг друга.
+ * Отзывы по идентификатору, списки и страницы отзывов возвращаются с учетом еще не записанных изменений, поэтому
+ * чтение не ждет записи пакета. Для страницы из БД читается на столько строк больше, сколько отзывов ждут записи,
+ * отзывы с изменениями перечитываются по идентификаторам с наложенной полезностью и отбираются по курсору, после
+ * чего страница упорядочивается и обрезается: ее границы совпадают с теми, что были бы после записи пакета.
+ * При остановке приложения изменения записываются в БД.
+ */
+@Slf4j
+@Primary
+@Component
+public class BufferedReviewDao implements ReviewDao {
+    private static final Comparator<Review> ORDER = Comparator.comparingInt(Review::getUseful).reversed()
+            .thenComparing(Review::getReviewId);
+    private final ReviewDaoImpl reviewDao;
+    private final Stripe[] stripes;
+    /**
+     * Блокировка, под которой пакет записывается в БД: чтение отзыва не должно видеть изменения
+     * одновременно в БД и в накопителе
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public BufferedReviewDao(ReviewDaoImpl reviewDao,
+                             @Value("${filmorate.reviews.useful-stripes:16}") int stripeCount) {
+        this.reviewDao = reviewDao;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public Review addReview(Review review) {
+        return reviewDao.addReview(review);
+    }
+
+    @Override
+    public Review updateReview(Review review) {
+        flushLock.readLock().lock();
+        try {
+            return withPending(reviewDao.updateReview(review));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteReviewById(Integer id) {
+        reviewDao.deleteReviewById(id);
+        stripe(id).remove(id);
+    }
+
+    @Override
+    public Review getReviewById(Integer id) {
+        flushLock.readLock().lock();
+        try {
+            return withPending(reviewDao.getReviewById(id));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Review> getReviews(Long id, int count) {
+        flushLock.readLock().lock();
+        try {
+            Map<Integer, Integer> deltas = pendingDeltas();
+            if (deltas.isEmpty()) {
+                return reviewDao.getReviews(id, count);
+            }
+            return merge(reviewDao.getReviews(id, count + deltas.size()), id, null, null, deltas, count);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Review> getReviewsPage(Long id, int afterUseful, int afterId, int count) {
+        flushLock.readLock().lock();
+        try {
+            Map<Integer, Integer> deltas = pendingDeltas();
+            if (deltas.isEmpty()) {
+                return reviewDao.getReviewsPage(id, afterUseful, afterId, count);
+            }
+            return merge(reviewDao.getReviewsPage(id, afterUseful, afterId, count + deltas.size()), id,
+                    afterUseful, afterId, deltas, count);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isContains(Integer id) {
+        return reviewDao.isContains(id);
+    }
+
+    /**
+     * Изменение полезности попадает в накопитель только после фиксации транзакции, в которой записан голос:
+     * при откате голоса его изменение не должно быть записано в БД.
+     */
+    @Override
+    public void updateUseful(Integer reviewId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stripe(reviewId).add(reviewId, delta);
+                }
+            });
+        } else {
+            stripe(reviewId).add(reviewId, delta);
+        }
+    }
+
+    @Override
+    public void updateUseful(Map<Integer, Integer> deltas) {
+        deltas.forEach(this::updateUseful);
+    }
+
+    /**
+     * Метод записывает накопленные изменения полезности в БД. Пока пакет записывается, его изменения
+     * продолжают учитываться при чтении отзыва; если запись не удалась, они возвращаются в накопитель.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.reviews.useful-flush-interval-ms:200}")
+    public synchronized void flush() {
+        Map<Integer, Integer> batch = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(batch);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        flushLock.writeLock().lock();
+        try {
+            reviewDao.updateUseful(batch);
+            for (Stripe stripe : stripes) {
+                stripe.commit();
+            }
+            log.debug("Записаны изменения полезности {} отзывов", batch.size());
+        } catch (DataAccessException exception) {
+            log.warn("Не удалось записать изменения полезности {} отзывов: {}", batch.size(),
+                    exception.getMessage());
+            for (Stripe stripe : stripes) {
+                stripe.restore();
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод записывает накопленные изменения при остановке приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("Изменения полезности отзывов записаны перед остановкой");
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    private Review withPending(Review review) {
+        int delta = stripe(review.getReviewId()).get(review.getReviewId());
+        if (delta != 0) {
+            review.setUseful(review.getUseful() + delta);
+        }
+        return review;
+    }
+
+    /**
+     * Метод собирает страницу с учетом незаписанных изменений полезности
+     *
+     * @param stored      страница из БД, прочитанная с запасом на число отзывов с изменениями
+     * @param filmId      идентификатор фильма, -1 - отзывы всех фильмов
+     * @param afterUseful полезность последнего отзыва предыдущей страницы, null - первая страница
+     * @param afterId     идентификатор последнего отзыва предыдущей страницы, null - первая страница
+     * @param deltas      незаписанные изменения полезности по идентификаторам отзывов
+     * @param count       размер страницы
+     * @return возвращает страницу отзывов
+     */
+    private List<Review> merge(List<Review> stored, Long filmId, Integer afterUseful, Integer afterId,
+                               Map<Integer, Integer> deltas, int count) {
+        List<Review> reviews = new ArrayList<>(stored.size());
+        for (Review review : stored) {
+            if (!deltas.containsKey(review.getReviewId())) {
+                reviews.add(review);
+            }
+        }
+        for (Review review : reviewDao.getReviewsByIds(deltas.keySet())) {
+            review.setUseful(review.getUseful() + deltas.get(review.getReviewId()));
+            if ((filmId == -1 || filmId.equals(review.getFilmId())) && isAfter(review, afterUseful, afterId)) {
+                reviews.add(review);
+            }
+        }
+        reviews.sort(ORDER);
+        return reviews.size() > count ? new ArrayList<>(reviews.subList(0, count)) : reviews;
+    }
+
+    private static boolean isAfter(Review review, Integer afterUseful, Integer afterId) {
+        if (afterUseful == null) {
+            return true;
+        }
+        int useful = review.getUseful();
+        return useful < afterUseful || useful == afterUseful && review.getReviewId() > afterId;
+    }
+
+    private Map<Integer, Integer> pendingDeltas() {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(deltas);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    private Stripe stripe(Integer reviewId) {
+        return stripes[Math.floorMod(reviewId.hashCode(), stripes.length)];
+    }
+
+    /**
+     * Сегмент накопителя: изменения, ожидающие записи, и изменения, которые записываются сейчас
+     */
+    private static final class Stripe {
+        private Map<Integer, Integer> pending = new HashMap<>();
+        private Map<Integer, Integer> flushing = new HashMap<>();
+
+        private synchronized void add(Integer reviewId, int delta) {
+            pending.merge(reviewId, delta, Integer::sum);
+        }
+
+        private synchronized int get(Integer reviewId) {
+            return pending.getOrDefault(reviewId, 0) + flushing.getOrDefault(reviewId, 0);
+        }
+
+        private synchronized void collect(Map<Integer, Integer> deltas) {
+            pending.forEach((reviewId, delta) -> deltas.merge(reviewId, delta, Integer::sum));
+            flushing.forEach((reviewId, delta) -> deltas.merge(reviewId, delta, Integer::sum));
+        }
+
+        private synchronized void remove(Integer reviewId) {
+            pending.remove(reviewId);
+            flushing.remove(reviewId);
+        }
+
+        private synchronized int size() {
+            return pending.size();
+        }
+
+        private synchronized void drainTo(Map<Integer, Integer> batch) {
+            pending.values().removeIf(delta -> delta == 0);
+            batch.putAll(pending);
+            flushing = pending;
+            pending = new HashMap<>();
+        }
+
+        private synchronized void commit() {
+            flushing = new HashMap<>();
+        }
+
+        private synchronized void restore() {
+            flushing.forEach((reviewId, delta) -> pending.merge(reviewId, delta, Integer::sum));
+            flushing = new HashMap<>();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Интерфейс для работы с логикой касающиеся отзывов реализован в {@link ReviewDaoImpl}.
@@ -50,26 +51,38 @@ public interface ReviewDao {
      */
     List<Review> getReviews(Long id, int count);
 
+    /**
+     * Получение страницы отзывов по идентификатору фильма, если фильм не указан то всех, в порядке убывания
+     * полезности и возрастания идентификатора. Страница начинается после отзыва, на котором закончилась предыдущая.
+     *
+     * @param id идентификатор фильма.
+     * @param afterUseful полезность последнего отзыва предыдущей страницы.
+     * @param afterId идентификатор последнего отзыва предыдущей страницы.
+     * @param count размер страницы.
+     * @return List возвращается лист с отзывами.
+     */
+    List<Review> getReviewsPage(Long id, int afterUseful, int afterId, int count);
+
     /**
      * Проверка на наличие отзыва в БД по идентификатору.
      *
      * @param id идентификатор отзыва.
      * @return возвращает true - если отзыв найден, false - если не найден
-     * @catch отлавливает EmptyResultDataAccessException в случае, если в БД нет информации по отзыву.
      */
     boolean isContains(Integer id);
 
     /**
-     * Метод увеличивающий полезность отзыва.
+     * Метод изменяющий полезность отзыва на переданную величину одним атомарным запросом.
      *
-     * @param review передаваемый отзыв.
+     * @param reviewId идентификатор отзыва.
+     * @param delta изменение полезности.
      */
-    void increaseScore(Review review);
+    void updateUseful(Integer reviewId, int delta);
 
     /**
-     * Метод уменьшающий полезность отзыва.
+     * Метод изменяющий полезность нескольких отзывов одним пакетом запросов.
      *
-     * @param review передаваемый отзыв.
+     * @param deltas изменения полезности по идентификаторам отзывов.
      */
-    void decreaseScore(Review review);
-}
\ No newline at end of file
+    void updateUseful(Map<Integer, Integer> deltas);
+}
@@ -2,32 +2,48 @@ package ru.yandex.practicum.filmorate.storage.dao.review;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.mapper.ReviewMapper;
 
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ReviewDaoImpl implements ReviewDao {
+    private static final int BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     @Override
     public Review addReview(Review review) {
         log.debug("addReview({})", review);
-        jdbcTemplate.update(
-                "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) VALUES (?,?,?,?,?)",
-                review.getContent(), review.getIsPositive(), review.getUserId(), review.getFilmId(), review.getUseful());
-        Review thisReview = jdbcTemplate.queryForObject(
-                "SELECT review_id, content, is_positive, user_id, film_id, useful " +
-                        "FROM reviews WHERE content=? AND is_positive=? AND user_id=? AND film_id=? AND useful=?",
-                new ReviewMapper(), review.getContent(), review.getIsPositive(), review.getUserId(), review.getFilmId(),
-                review.getUseful());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) VALUES (?,?,?,?,?)",
+                    new String[]{"review_id"});
+            statement.setString(1, review.getContent());
+            statement.setBoolean(2, review.getIsPositive());
+            statement.setLong(3, review.getUserId());
+            statement.setLong(4, review.getFilmId());
+            statement.setInt(5, review.getUseful());
+            return statement;
+        }, keyHolder);
+        Review thisReview = new Review(review.getContent(), review.getIsPositive(), review.getUserId(),
+                review.getFilmId());
+        thisReview.setReviewId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        thisReview.setUseful(review.getUseful());
         log.trace("Добавлен отзыв: {}", thisReview);
         return thisReview;
     }
@@ -35,8 +51,8 @@ public class ReviewDaoImpl implements ReviewDao {
     @Override
     public Review updateReview(Review review) {
         log.debug("updateReview({})", review);
-        jdbcTemplate.update("UPDATE reviews SET useful=?, is_positive=?, content=? WHERE review_id=?",
-                review.getUseful(), review.getIsPositive(), review.getContent(), review.getReviewId());
+        jdbcTemplate.update("UPDATE reviews SET is_positive=?, content=? WHERE review_id=?",
+                review.getIsPositive(), review.getContent(), review.getReviewId());
         Review thisReview = getReviewById(review.getReviewId());
         log.trace("Обновлён отзыв: {}", thisReview);
         return thisReview;
@@ -66,48 +82,84 @@ public class ReviewDaoImpl implements ReviewDao {
         if (id == -1) {
             list = new ArrayList<>(jdbcTemplate.query(
                     "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews " +
-                            "GROUP BY review_id ORDER BY useful DESC LIMIT ?", new ReviewMapper(), count));
+                            "ORDER BY useful DESC, review_id LIMIT ?", new ReviewMapper(), count));
             log.trace("Возвращён список всех отзывов: {}", list);
         } else {
             list = new ArrayList<>(jdbcTemplate.query(
                     "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews " +
-                            "WHERE film_id=? GROUP BY review_id ORDER BY useful DESC LIMIT ?",
+                            "WHERE film_id=? ORDER BY useful DESC, review_id LIMIT ?",
                     new ReviewMapper(), id, count));
             log.trace("Возвращён список отзывов по идентификатору фильма {}: {}", id, list);
         }
         return list;
     }
 
+    @Override
+    public List<Review> getReviewsPage(Long id, int afterUseful, int afterId, int count) {
+        log.debug("getReviewsPage({}, {}, {}, {})", id, afterUseful, afterId, count);
+        List<Review> list;
+        if (id == -1) {
+            list = jdbcTemplate.query(
+                    "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews " +
+                            "WHERE useful <= ? AND (useful < ? OR review_id > ?) " +
+                            "ORDER BY useful DESC, review_id LIMIT ?",
+                    new ReviewMapper(), afterUseful, afterUseful, afterId, count);
+        } else {
+            list = jdbcTemplate.query(
+                    "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews " +
+                            "WHERE film_id=? AND useful <= ? AND (useful < ? OR review_id > ?) " +
+                            "ORDER BY useful DESC, review_id LIMIT ?",
+                    new ReviewMapper(), id, afterUseful, afterUseful, afterId, count);
+        }
+        log.trace("Возвращена страница отзывов по идентификатору фильма {}: {}", id, list.size());
+        return list;
+    }
+
+    /**
+     * Получение отзывов по списку идентификаторов, без упорядочивания. Используется {@link BufferedReviewDao}
+     * для отзывов с еще не записанными изменениями полезности.
+     *
+     * @param reviewIds идентификаторы отзывов.
+     * @return List возвращается лист с найденными отзывами.
+     */
+    public List<Review> getReviewsByIds(Collection<Integer> reviewIds) {
+        log.debug("getReviewsByIds({})", reviewIds.size());
+        List<Integer> ids = new ArrayList<>(reviewIds);
+        List<Review> list = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            list.addAll(namedJdbcTemplate.query(
+                    "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews " +
+                            "WHERE review_id IN (:ids)",
+                    Map.of("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()))), new ReviewMapper()));
+        }
+        return list;
+    }
+
     @Override
     public boolean isContains(Integer id) {
         log.debug("isContains({})", id);
-        try {
-            getReviewById(id);
-            log.trace("Информация по отзыву с идентификатором {} найдена", id);
-            return true;
-        } catch (EmptyResultDataAccessException exception) {
-            log.trace("Нет информации по отзыву с идентификатором {}", id);
-            return false;
-        }
+        boolean contains = id != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM reviews WHERE review_id = ?)", Boolean.class, id));
+        log.trace("Отзыв с идентификатором {} найден: {}", id, contains);
+        return contains;
     }
 
     @Override
-    public void increaseScore(Review review) {
-        log.debug("increaseScore({})", review);
-        review.setUseful(review.getUseful() + 1);
-            jdbcTemplate.update("UPDATE reviews SET content=?, is_positive=?, user_id=?, film_id=?, useful=? " +
-                            "WHERE review_id=?", review.getContent(), review.getIsPositive(), review.getUserId(),
-                    review.getFilmId(), review.getUseful(), review.getReviewId());
-        log.trace("У отзыва {} увеличился уровень полезности на единицу", review);
+    public void updateUseful(Integer reviewId, int delta) {
+        log.debug("updateUseful({}, {})", reviewId, delta);
+        jdbcTemplate.update("UPDATE reviews SET useful = useful + ? WHERE review_id=?", delta, reviewId);
+        log.trace("У отзыва {} изменился уровень полезности на {}", reviewId, delta);
     }
 
     @Override
-    public void decreaseScore(Review review) {
-        log.debug("decreaseScore({})", review);
-        review.setUseful(review.getUseful() - 1);
-            jdbcTemplate.update("UPDATE reviews SET content=?, is_positive=?, user_id=?, film_id=?, useful=? " +
-                            "WHERE review_id=?", review.getContent(), review.getIsPositive(), review.getUserId(),
-                    review.getFilmId(), review.getUseful(), review.getReviewId());
-        log.trace("У отзыва {} уменьшился уровень полезности на единицу", review);
+    public void updateUseful(Map<Integer, Integer> deltas) {
+        log.debug("updateUseful({})", deltas.size());
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE reviews SET useful = useful + ? WHERE review_id=?", entries, entries.size(),
+                (statement, entry) -> {
+                    statement.setInt(1, entry.getValue());
+                    statement.setInt(2, entry.getKey());
+                });
+        log.trace("Изменен уровень полезности {} отзывов", entries.size());
     }
 }
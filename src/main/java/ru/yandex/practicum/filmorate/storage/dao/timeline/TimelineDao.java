@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage.dao.timeline;
+
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс для работы с хранилищем лент активности друзей, реализован в {@link TimelineDaoImpl}
+ */
+public interface TimelineDao {
+    /**
+     * Метод добавляет событие в ленты подписчиков
+     *
+     * @param eventId идентификатор события
+     * @param userIds идентификаторы подписчиков
+     */
+    void addEntries(Long eventId, Collection<Long> userIds);
+
+    /**
+     * Метод возвращает страницу ленты активности друзей пользователя, от новых событий к старым
+     *
+     * @param userId        идентификатор пользователя
+     * @param beforeEventId идентификатор события, более старые события которого попадают в страницу
+     * @param limit         размер страницы
+     * @return возвращает события страницы
+     */
+    List<Feed> getTimelinePage(Long userId, Long beforeEventId, int limit);
+
+    /**
+     * Метод возвращает собственные события пользователей, от новых событий к старым
+     *
+     * @param userIds       идентификаторы авторов событий
+     * @param beforeEventId идентификатор события, более старые события которого попадают в выборку
+     * @param limit         количество событий
+     * @return возвращает события
+     */
+    List<Feed> getEventsByUsers(Collection<Long> userIds, Long beforeEventId, int limit);
+}
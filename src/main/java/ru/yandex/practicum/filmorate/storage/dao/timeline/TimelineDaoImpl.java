@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage.dao.timeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.mapper.FeedMapper;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimelineDaoImpl implements TimelineDao {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    public void addEntries(Long eventId, Collection<Long> userIds) {
+        log.debug("addEntries({}, {})", eventId, userIds.size());
+        jdbcTemplate.batchUpdate("INSERT INTO timeline (user_id, event_id) VALUES (?, ?)", userIds, userIds.size(),
+                (statement, userId) -> {
+                    statement.setLong(1, userId);
+                    statement.setLong(2, eventId);
+                });
+        log.trace("Событие {} добавлено в ленты {} подписчиков", eventId, userIds.size());
+    }
+
+    @Override
+    public List<Feed> getTimelinePage(Long userId, Long beforeEventId, int limit) {
+        log.debug("getTimelinePage({}, {}, {})", userId, beforeEventId, limit);
+        return jdbcTemplate.query("SELECT f.* FROM timeline AS t INNER JOIN feed AS f ON f.event_id = t.event_id " +
+                "WHERE t.user_id = ? AND t.event_id < ? ORDER BY t.event_id DESC LIMIT ?",
+                new FeedMapper(), userId, beforeEventId, limit);
+    }
+
+    @Override
+    public List<Feed> getEventsByUsers(Collection<Long> userIds, Long beforeEventId, int limit) {
+        log.debug("getEventsByUsers({}, {}, {})", userIds, beforeEventId, limit);
+        return namedJdbcTemplate.query("SELECT * FROM feed WHERE user_id IN (:ids) AND event_id < :before " +
+                "ORDER BY event_id DESC LIMIT :limit",
+                Map.of("ids", userIds, "before", beforeEventId, "limit", limit), new FeedMapper());
+    }
+}
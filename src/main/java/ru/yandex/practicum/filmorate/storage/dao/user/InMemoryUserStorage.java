@@ -1,114 +1,376 @@
 package ru.yandex.practicum.filmorate.storage.dao.user;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.assistant.LongObjectHashMap;
+import ru.yandex.practicum.filmorate.assistant.SortedIds;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.validation.Validation;
+import ru.yandex.practicum.filmorate.storage.dao.friend.FriendDao;
 
-import javax.validation.Valid;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Класс-хранилище реализующий интерфейс {@link UserStorage} для хранения и обновления пользователей со свойствами <b>users<b/> и <b>id<b/>
+ * Класс-хранилище пользователей в памяти, реализующий интерфейс {@link UserStorage}. Используется вместо
+ * {@link UserDbStorage} в профиле inmemory. Пользователи хранятся в таблице с ключами long без упаковки, индексы
+ * по электронной почте и логину проверяют их уникальность так же, как ограничения таблицы users. Хранилище
+ * реализует и {@link FriendDao}: друзья и подписчики каждого пользователя хранятся отсортированными массивами id,
+ * поэтому общие друзья находятся слиянием двух массивов, а при удалении пользователя удаляются и его дружбы.
+ * Каждый пользователь хранится и строкой таблицы users, поэтому внешние ключи на нее проверяются, а лайки, отзывы,
+ * оценки отзывов, события и ленты пользователя при его удалении удаляют каскады БД. Если транзакция, в которой
+ * пользователь создавался или изменялся, откатывается, хранилище возвращается к прежнему состоянию.
+ * Чтения выполняются параллельно, изменения - под блокировкой записи; наружу отдаются копии пользователей.
  */
-@Component("InMemoryUserStorage")
 @Slf4j
-public class InMemoryUserStorage implements UserStorage {
+@Profile("inmemory")
+@Component("InMemoryUserStorage")
+@RequiredArgsConstructor
+public class InMemoryUserStorage implements UserStorage, FriendDao {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     /**
      * Поле хранилище пользователей
      */
-    private final Map<Long, User> users = new HashMap<>();
+    private final LongObjectHashMap<User> users = new LongObjectHashMap<>();
+    private final Map<String, Long> idsByEmail = new HashMap<>();
+    private final Map<String, Long> idsByLogin = new HashMap<>();
+    /**
+     * Поле с id друзей каждого пользователя
+     */
+    private final LongObjectHashMap<long[]> friends = new LongObjectHashMap<>();
+    /**
+     * Поле с id пользователей, добавивших пользователя в друзья
+     */
+    private final LongObjectHashMap<long[]> followers = new LongObjectHashMap<>();
     /**
      * Поле счетчик идентификаторов пользователей
      */
-    private Long id = 1L;
+    private final AtomicLong id = new AtomicLong();
 
     /**
      * Метод добавления пользователя.
      *
      * @param user информация о пользователе.
      * @return возвращает созданного пользователя
-     * @throws NotFoundException генерирует 404 ошибку в случае если пользователь с электронной почтой уже зарегистрирован.
+     * @throws ValidationException генерирует 400 ошибку в случае если электронная почта или логин уже заняты.
      */
-    public User create(@Valid @RequestBody User user) {
-        Validation.validationUser(user);
-        if (users.containsKey(user.getId())) {
-            log.debug("Email уже существует");
-            throw new ValidationException(String.format("Пользователь с электронной почтой %s уже зарегистрирован.",
-                    user.getEmail()));
+    @Override
+    public User create(User user) {
+        lock.writeLock().lock();
+        try {
+            checkUnique(user, null);
+            User thisUser = copy(user);
+            thisUser.setId(id.incrementAndGet());
+            jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                    thisUser.getId(), thisUser.getEmail(), thisUser.getLogin(), thisUser.getName(),
+                    thisUser.getBirthday());
+            put(thisUser);
+            onRollback(() -> {
+                lock.writeLock().lock();
+                try {
+                    remove(thisUser);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            log.debug("Пользователь создан");
+            return copy(thisUser);
+        } finally {
+            lock.writeLock().unlock();
         }
-        log.debug("Пользователь создан");
-        user.setId(id);
-        id++;
-        users.put(user.getId(), user);
-        return user;
     }
 
+    /**
+     * Метод обновления пользователя.
+     *
+     * @param user информация о пользователе.
+     * @return возвращает обновленного пользователя
+     * @throws NotFoundException генерирует 404 ошибку в случае если пользователя не существует.
+     */
     @Override
     public User update(User user) {
-        return null;
+        Long userId = user.getId();
+        lock.writeLock().lock();
+        try {
+            User previous = userId == null ? null : users.get(userId);
+            if (previous == null) {
+                log.debug("Пользователь не существует");
+                throw new NotFoundException(String.format("Пользователя с id %d не существует", userId));
+            }
+            checkUnique(user, userId);
+            jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), userId);
+            User thisUser = copy(user);
+            remove(previous);
+            put(thisUser);
+            onRollback(() -> {
+                lock.writeLock().lock();
+                try {
+                    remove(thisUser);
+                    put(previous);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            log.debug("Пользователь обновлен");
+            return user;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void deleteUser(Long id) {
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", id);
+        lock.writeLock().lock();
+        try {
+            User user = users.get(id);
+            if (user != null) {
+                remove(user);
+                for (long friendId : ids(friends, id)) {
+                    unlink(followers, friendId, id);
+                }
+                for (long followerId : ids(followers, id)) {
+                    unlink(friends, followerId, id);
+                }
+                friends.remove(id);
+                followers.remove(id);
+                log.debug("Пользователь удален");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public Collection<User> getUsers() {
-        return null;
+        List<User> list = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            users.forEachValue(user -> list.add(copy(user)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        list.sort(Comparator.comparing(User::getId));
+        return list;
+    }
+
+    @Override
+    public boolean isContains(Long id) {
+        lock.readLock().lock();
+        try {
+            return users.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Метод обновления пользователя.
+     * Метод получение пользователя по id.
      *
-     * @param user информация о пользователе.
-     * @return возвращает обновленного пользователя
+     * @param id айди пользователя
+     * @return возвращает пользователя с указанным id.
      * @throws NotFoundException генерирует 404 ошибку в случае если пользователя не существует.
      */
-    public User put(@Valid @RequestBody User user) {
-        Long userId = user.getId();
-        Validation.validationUser(user);
-        if (users.containsKey(userId)) {
-            log.debug("Пользователь обновлен");
-            users.put(userId, user);
-        } else {
-            log.debug("Пользователь не существует");
-            throw new NotFoundException(String.format("Пользователя с id %d не существует", userId));
+    @Override
+    public User getUserById(Long id) {
+        lock.readLock().lock();
+        try {
+            User user = users.get(id);
+            if (user == null) {
+                log.debug("Пользователь не существует");
+                throw new NotFoundException(String.format("Пользователя с id %d не существует", id));
+            }
+            return copy(user);
+        } finally {
+            lock.readLock().unlock();
         }
-        return user;
     }
 
-    /**
-     * Получение списка пользователей.
-     *
-     * @return users возвращает коллекцию пользователей.
-     */
-    public Collection<User> getUser() {
-        log.debug("Запрошен список пользователей, их количество: {}", users.size());
-        return users.values();
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        List<User> found = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (Long userId : ids) {
+                User user = users.get(userId);
+                if (user != null) {
+                    found.add(copy(user));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public void addFriends(Long userId, Long idFriend, boolean status) {
+        lock.writeLock().lock();
+        try {
+            friends.put(userId, SortedIds.insert(ids(friends, userId), idFriend));
+            followers.put(idFriend, SortedIds.insert(ids(followers, idFriend), userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteFriend(Long userId, Long idFriend) {
+        lock.writeLock().lock();
+        try {
+            unlink(friends, userId, idFriend);
+            unlink(followers, idFriend, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isFriend(Long userId, Long friendId) {
+        lock.readLock().lock();
+        try {
+            return SortedIds.contains(ids(friends, userId), friendId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> getFriend(Long userId) {
+        lock.readLock().lock();
+        try {
+            return asList(ids(friends, userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> getMutualFriends(Long userId, Long otherId) {
+        lock.readLock().lock();
+        try {
+            long[] mutual = SortedIds.intersect(ids(friends, userId), ids(friends, otherId));
+            List<User> found = new ArrayList<>(mutual.length);
+            for (long friendId : mutual) {
+                found.add(copy(users.get(friendId)));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> getFollowers(Long userId) {
+        lock.readLock().lock();
+        try {
+            return asList(ids(followers, userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> getPopularFriends(Long userId, int threshold) {
+        List<Long> popular = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long friendId : ids(friends, userId)) {
+                if (ids(followers, friendId).length > threshold) {
+                    popular.add(friendId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return popular;
+    }
+
+    private void put(User user) {
+        users.put(user.getId(), user);
+        idsByEmail.put(user.getEmail(), user.getId());
+        idsByLogin.put(user.getLogin(), user.getId());
+    }
+
+    private void remove(User user) {
+        users.remove(user.getId());
+        idsByEmail.remove(user.getEmail());
+        idsByLogin.remove(user.getLogin());
     }
 
     /**
-     * Метод получение пользователя по id.
+     * Метод выполняет действие, если текущая транзакция будет откачена
      *
-     * @param id айди пользователя
-     * @return возвращает пользователя с указанным id.s
-     * @throws NotFoundException генерирует 404 ошибку в случае если пользователя не существует.
+     * @param action действие, возвращающее хранилище к состоянию до транзакции
      */
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
 
-    @Override
-    public User getUserById(Long id) {
-        if (users.containsKey(id)) {
-            log.debug("Запрошен пользователь c id: {}", id);
-            return users.get(id);
+    private void checkUnique(User user, Long userId) {
+        Long emailOwner = idsByEmail.get(user.getEmail());
+        if (emailOwner != null && !emailOwner.equals(userId)) {
+            log.debug("Email уже существует");
+            throw new ValidationException(String.format("Пользователь с электронной почтой %s уже зарегистрирован.",
+                    user.getEmail()));
+        }
+        Long loginOwner = idsByLogin.get(user.getLogin());
+        if (loginOwner != null && !loginOwner.equals(userId)) {
+            log.debug("Логин уже существует");
+            throw new ValidationException(String.format("Пользователь с логином %s уже зарегистрирован.",
+                    user.getLogin()));
+        }
+    }
+
+    private static long[] ids(LongObjectHashMap<long[]> index, long userId) {
+        long[] ids = index.get(userId);
+        return ids == null ? SortedIds.EMPTY : ids;
+    }
+
+    private static void unlink(LongObjectHashMap<long[]> index, long userId, long otherId) {
+        long[] ids = SortedIds.remove(ids(index, userId), otherId);
+        if (ids.length == 0) {
+            index.remove(userId);
         } else {
-            log.debug("Пользователь не существует");
-            throw new NotFoundException(String.format("Пользователя с id %d не существует", id));
+            index.put(userId, ids);
+        }
+    }
+
+    private static List<Long> asList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long userId : ids) {
+            list.add(userId);
         }
+        return list;
+    }
+
+    private static User copy(User user) {
+        User copy = new User(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        copy.setId(user.getId());
+        return copy;
     }
 }
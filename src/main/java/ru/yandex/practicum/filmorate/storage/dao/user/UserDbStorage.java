@@ -4,19 +4,35 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.mapper.UserMapper;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
+@Profile("!inmemory")
 @Component("UserDbStorage")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    /**
+     * Максимальное количество идентификаторов в одном IN-запросе
+     */
+    private static final int BATCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     /**
      * Метод добавления пользователя.
@@ -28,10 +44,19 @@ public class UserDbStorage implements UserStorage {
      */
     @Override
     public User create(User user) {
-        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
-                user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()));
-        return jdbcTemplate.queryForObject("SELECT user_id, email, login, name, birthday FROM users " +
-                "WHERE email=?", new UserMapper(), user.getEmail());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", new String[]{"user_id"});
+            statement.setString(1, user.getEmail());
+            statement.setString(2, user.getLogin());
+            statement.setString(3, user.getName());
+            statement.setDate(4, Date.valueOf(user.getBirthday()));
+            return statement;
+        }, keyHolder);
+        User theUser = new User(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        theUser.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        return theUser;
     }
 
     /**
@@ -45,9 +70,8 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User update(User user) {
         Long userId = user.getId();
-        if (!getUserById(userId).getEmail().isEmpty()) {
-            jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?",
-                    user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()), user.getId());
+        if (jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?",
+                user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()), userId) > 0) {
             log.debug("Пользователь обновлен");
             return user;
         } else {
@@ -92,4 +116,33 @@ public class UserDbStorage implements UserStorage {
             throw new NotFoundException(String.format("Пользователя с id %d не существует", id));
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isContains(Long id) {
+        log.debug("isContains({})", id);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)", Boolean.class, id));
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        log.debug("getUsersByIds({})", ids.size());
+        Map<Long, User> usersById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            for (User user : namedJdbcTemplate.query("SELECT * FROM users WHERE user_id IN (:ids)",
+                    Map.of("ids", batch), new UserMapper())) {
+                usersById.put(user.getId(), user);
+            }
+        }
+        List<User> users = new ArrayList<>(usersById.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        log.trace("Возвращены пользователи по списку идентификаторов: {}", users.size());
+        return users;
+    }
+}
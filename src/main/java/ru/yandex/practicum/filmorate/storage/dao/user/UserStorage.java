@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.dao.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Интерфейс для работы с хранилищем пользователей, реализован в {@link InMemoryUserStorage} и {@link UserDbStorage}
@@ -45,4 +46,20 @@ public interface UserStorage {
      * @return возвращает пользователя по id
      */
     User getUserById(Long id);
+
+    /**
+     * Метод проверки существования пользователя без загрузки его данных
+     *
+     * @param id идентификатор пользователя
+     * @return возвращает true - если пользователь найден, false - если не найден
+     */
+    boolean isContains(Long id);
+
+    /**
+     * Метод запроса пользователей по списку идентификаторов
+     *
+     * @param ids идентификаторы пользователей
+     * @return возвращает найденных пользователей в порядке переданных идентификаторов
+     */
+    List<User> getUsersByIds(List<Long> ids);
 }
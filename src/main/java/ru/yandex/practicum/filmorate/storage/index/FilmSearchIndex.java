@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс-индекс для поиска фильмов по подстроке в названии и в имени режиссера. Названия и имена разбиваются
+ * на триграммы, для каждой триграммы хранится множество фильмов (режиссеров), в которых она встречается.
+ * Поиск пересекает множества триграмм запроса и проверяет вхождение подстроки только у найденных кандидатов.
+ * Индекс заполняется из БД при старте и обновляется сервисами фильмов и режиссеров.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    /**
+     * Длина n-граммы
+     */
+    private static final int GRAM = 3;
+    /**
+     * Релевантность при полном совпадении
+     */
+    private static final int EXACT = 3;
+    /**
+     * Релевантность при совпадении начала строки
+     */
+    private static final int PREFIX = 2;
+    /**
+     * Релевантность при вхождении подстроки
+     */
+    private static final int CONTAINS = 1;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<String, Set<Long>> titleGrams = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Integer>> directorGrams = new HashMap<>();
+    private final Map<Integer, Set<Long>> filmsByDirector = new HashMap<>();
+    private final Map<Long, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    /**
+     * Метод заполняет индекс данными из таблиц film, directors и film_directors
+     */
+    @PostConstruct
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query("SELECT film_id, name FROM film",
+                    rs -> {
+                        indexTitle(rs.getLong("film_id"), rs.getString("name"));
+                    });
+            jdbcTemplate.query("SELECT director_id, director_name FROM directors",
+                    rs -> {
+                        indexDirector(rs.getInt("director_id"), rs.getString("director_name"));
+                    });
+            jdbcTemplate.query("SELECT film_id, director_id FROM film_directors",
+                    rs -> {
+                        link(rs.getLong("film_id"), rs.getInt("director_id"));
+                    });
+            log.info("Поисковый индекс заполнен, фильмов: {}, режиссеров: {}", titles.size(), directorNames.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод добавляет фильм в индекс или обновляет его название и режиссеров
+     *
+     * @param film фильм с заполненными режиссерами
+     */
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            unindexFilm(film.getId());
+            indexTitle(film.getId(), film.getName());
+            if (film.getDirectors() != null) {
+                for (Director director : film.getDirectors()) {
+                    link(film.getId(), director.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет фильм из индекса
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            unindexFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод добавляет режиссера в индекс или обновляет его имя
+     *
+     * @param director режиссер
+     */
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            unindexDirectorName(director.getId());
+            indexDirector(director.getId(), director.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет режиссера и его связи с фильмами из индекса
+     *
+     * @param directorId идентификатор режиссера
+     */
+    public void removeDirector(Integer directorId) {
+        lock.writeLock().lock();
+        try {
+            unindexDirectorName(directorId);
+            Set<Long> films = filmsByDirector.remove(directorId);
+            if (films != null) {
+                for (Long filmId : films) {
+                    directorsByFilm.get(filmId).remove(directorId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод ищет фильмы, в названии которых или в имени режиссера которых встречается подстрока запроса
+     * без учета регистра
+     *
+     * @param query      текст для поиска
+     * @param byTitle    искать по названию фильма
+     * @param byDirector искать по имени режиссера
+     * @return возвращает найденные идентификаторы фильмов с их релевантностью (больше - релевантнее)
+     */
+    public Map<Long, Integer> search(String query, boolean byTitle, boolean byDirector) {
+        String text = normalize(query);
+        Map<Long, Integer> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                for (Long filmId : candidates(text, titleGrams, titles.keySet())) {
+                    int relevance = relevance(titles.get(filmId), text);
+                    if (relevance > 0) {
+                        result.merge(filmId, relevance, Math::max);
+                    }
+                }
+            }
+            if (byDirector) {
+                for (Integer directorId : candidates(text, directorGrams, directorNames.keySet())) {
+                    int relevance = relevance(directorNames.get(directorId), text);
+                    if (relevance > 0) {
+                        for (Long filmId : filmsByDirector.getOrDefault(directorId, Collections.emptySet())) {
+                            result.merge(filmId, relevance, Math::max);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.trace("По запросу '{}' найдено фильмов: {}", query, result.size());
+        return result;
+    }
+
+    private <T> Collection<T> candidates(String text, Map<String, Set<T>> grams, Set<T> all) {
+        if (text.length() < GRAM) {
+            return all;
+        }
+        List<Set<T>> postings = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Set<T> ids = grams.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<T> result = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.retainAll(postings.get(i));
+        }
+        return result;
+    }
+
+    private static int relevance(String value, String text) {
+        if (value.equals(text)) {
+            return EXACT;
+        }
+        if (value.startsWith(text)) {
+            return PREFIX;
+        }
+        return value.contains(text) ? CONTAINS : 0;
+    }
+
+    private void indexTitle(Long filmId, String name) {
+        String title = normalize(name);
+        titles.put(filmId, title);
+        for (String gram : grams(title)) {
+            titleGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(filmId);
+        }
+    }
+
+    private void indexDirector(Integer directorId, String name) {
+        String directorName = normalize(name);
+        directorNames.put(directorId, directorName);
+        for (String gram : grams(directorName)) {
+            directorGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(directorId);
+        }
+    }
+
+    private void link(Long filmId, Integer directorId) {
+        filmsByDirector.computeIfAbsent(directorId, key -> new HashSet<>()).add(filmId);
+        directorsByFilm.computeIfAbsent(filmId, key -> new HashSet<>()).add(directorId);
+    }
+
+    private void unindexFilm(Long filmId) {
+        String title = titles.remove(filmId);
+        if (title != null) {
+            for (String gram : grams(title)) {
+                removeFromGram(titleGrams, gram, filmId);
+            }
+        }
+        Set<Integer> directors = directorsByFilm.remove(filmId);
+        if (directors != null) {
+            for (Integer directorId : directors) {
+                filmsByDirector.get(directorId).remove(filmId);
+            }
+        }
+    }
+
+    private void unindexDirectorName(Integer directorId) {
+        String name = directorNames.remove(directorId);
+        if (name != null) {
+            for (String gram : grams(name)) {
+                removeFromGram(directorGrams, gram, directorId);
+            }
+        }
+    }
+
+    private static <T> void removeFromGram(Map<String, Set<T>> grams, String gram, T id) {
+        Set<T> ids = grams.get(gram);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,302 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
+import ru.yandex.practicum.filmorate.assistant.SortedIds;
+
+import javax.annotation.PostConstruct;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс-индекс лайков в виде разреженной матрицы пользователь-фильм. Для каждого пользователя хранится
+ * отсортированный массив понравившихся фильмов, для каждого фильма - отсортированный массив лайкнувших
+ * пользователей. Похожие пользователи находятся подсчетом пересечений через обратный индекс, без обхода
+ * всех пользователей. Индекс заполняется из таблицы likes при старте и обновляется сервисом фильмов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeMatrix {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> filmsByUser = new HashMap<>();
+    private final Map<Long, long[]> usersByFilm = new HashMap<>();
+
+    /**
+     * Метод заполняет индекс данными из таблицы likes
+     */
+    @PostConstruct
+    public void load() {
+        Loader loader = new Loader();
+        jdbcTemplate.query("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id", loader);
+        loader.flush();
+        Map<Long, long[]> films = new HashMap<>();
+        LongIntHashMap filled = new LongIntHashMap(loader.filmLikes.size());
+        loader.filmLikes.forEach((filmId, likes) -> films.put(filmId, new long[likes]));
+        List<Long> userIds = new ArrayList<>(loader.users.keySet());
+        Collections.sort(userIds);
+        for (Long userId : userIds) {
+            for (long filmId : loader.users.get(userId)) {
+                films.get(filmId)[filled.addTo(filmId, 1) - 1] = userId;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            filmsByUser.putAll(loader.users);
+            usersByFilm.clear();
+            usersByFilm.putAll(films);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Матрица лайков заполнена, пользователей: {}, фильмов: {}", loader.users.size(), films.size());
+    }
+
+    /**
+     * Метод добавляет лайк в индекс
+     *
+     * @param userId идентификатор пользователя
+     * @param filmId идентификатор фильма
+     */
+    public void addLike(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            filmsByUser.put(userId, SortedIds.insert(filmsByUser.getOrDefault(userId, SortedIds.EMPTY), filmId));
+            usersByFilm.put(filmId, SortedIds.insert(usersByFilm.getOrDefault(filmId, SortedIds.EMPTY), userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет лайк из индекса
+     *
+     * @param userId идентификатор пользователя
+     * @param filmId идентификатор фильма
+     */
+    public void removeLike(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFrom(filmsByUser, userId, filmId);
+            removeFrom(usersByFilm, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет из индекса все лайки пользователя
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            long[] films = filmsByUser.remove(userId);
+            if (films != null) {
+                for (long filmId : films) {
+                    removeFrom(usersByFilm, filmId, userId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет из индекса все лайки фильма
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            long[] users = usersByFilm.remove(filmId);
+            if (users != null) {
+                for (long userId : users) {
+                    removeFrom(filmsByUser, userId, filmId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает пользователей, лайкнувших фильм
+     *
+     * @param filmId идентификатор фильма
+     * @return возвращает отсортированный массив идентификаторов пользователей
+     */
+    public long[] getUsers(long filmId) {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.getOrDefault(filmId, SortedIds.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает фильмы, которые лайкнул пользователь
+     *
+     * @param userId идентификатор пользователя
+     * @return возвращает отсортированный массив идентификаторов фильмов
+     */
+    public long[] getFilms(long userId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.getOrDefault(userId, SortedIds.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает количество лайков фильмов
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return возвращает количество лайков по идентификаторам фильмов
+     */
+    public LongIntHashMap getLikesCount(long[] filmIds) {
+        LongIntHashMap likes = new LongIntHashMap(filmIds.length);
+        lock.readLock().lock();
+        try {
+            for (long filmId : filmIds) {
+                likes.put(filmId, usersByFilm.getOrDefault(filmId, SortedIds.EMPTY).length);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return likes;
+    }
+
+    /**
+     * Метод возвращает идентификаторы всех пользователей, у которых есть лайки
+     *
+     * @return возвращает список идентификаторов пользователей
+     */
+    public List<Long> getUserIds() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(filmsByUser.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод находит пользователя с наибольшим количеством общих лайков (при равенстве - с меньшим
+     * идентификатором). Пересечения считаются только с пользователями, лайкнувшими хотя бы один общий фильм.
+     *
+     * @param userId идентификатор пользователя
+     * @return возвращает идентификатор похожего пользователя или -1, если общих лайков ни с кем нет
+     */
+    public long findSimilarUser(long userId) {
+        lock.readLock().lock();
+        try {
+            LongIntHashMap common = new LongIntHashMap();
+            for (long filmId : filmsByUser.getOrDefault(userId, SortedIds.EMPTY)) {
+                for (long otherId : usersByFilm.getOrDefault(filmId, SortedIds.EMPTY)) {
+                    if (otherId != userId) {
+                        common.addTo(otherId, 1);
+                    }
+                }
+            }
+            long[] best = {-1, 0};
+            common.forEach((otherId, count) -> {
+                if (count > best[1] || (count == best[1] && otherId < best[0])) {
+                    best[0] = otherId;
+                    best[1] = count;
+                }
+            });
+            return best[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает фильмы похожего пользователя, которые пользователь еще не лайкал
+     *
+     * @param userId        идентификатор пользователя
+     * @param similarUserId идентификатор похожего пользователя или -1
+     * @return возвращает идентификаторы рекомендуемых фильмов по возрастанию
+     */
+    public List<Long> getRecommendations(long userId, long similarUserId) {
+        if (similarUserId < 0) {
+            return Collections.emptyList();
+        }
+        long[] recommended;
+        lock.readLock().lock();
+        try {
+            recommended = SortedIds.difference(filmsByUser.getOrDefault(similarUserId, SortedIds.EMPTY),
+                    filmsByUser.getOrDefault(userId, SortedIds.EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> ids = new ArrayList<>(recommended.length);
+        for (long filmId : recommended) {
+            ids.add(filmId);
+        }
+        return ids;
+    }
+
+    private static void removeFrom(Map<Long, long[]> rows, long key, long id) {
+        long[] ids = rows.get(key);
+        if (ids != null) {
+            ids = SortedIds.remove(ids, id);
+            if (ids.length == 0) {
+                rows.remove(key);
+            } else {
+                rows.put(key, ids);
+            }
+        }
+    }
+
+    /**
+     * Обработчик выборки лайков, упорядоченной по пользователю и фильму
+     */
+    private static final class Loader implements RowCallbackHandler {
+        private final Map<Long, long[]> users = new HashMap<>();
+        private final LongIntHashMap filmLikes = new LongIntHashMap();
+        private long userId = -1;
+        private long[] films = new long[16];
+        private int size;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong("user_id");
+            long filmId = rs.getLong("film_id");
+            if (rowUserId != userId) {
+                flush();
+                userId = rowUserId;
+            }
+            if (size == films.length) {
+                films = Arrays.copyOf(films, size << 1);
+            }
+            films[size++] = filmId;
+            filmLikes.addTo(filmId, 1);
+        }
+
+        private void flush() {
+            if (size > 0) {
+                users.put(userId, Arrays.copyOf(films, size));
+                size = 0;
+            }
+        }
+    }
+}
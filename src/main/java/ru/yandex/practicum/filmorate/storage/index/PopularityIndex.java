@@ -0,0 +1,304 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.assistant.LongIntHashMap;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.dao.like.LikeDao;
+
+import javax.annotation.PostConstruct;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс-индекс популярности фильмов, хранящий рейтинги в памяти. Рейтинги ведутся отдельно для всех фильмов,
+ * для каждого жанра, для каждого года релиза и для каждой пары жанр-год, поэтому топ любого вида
+ * строится без обращения к БД. Индекс заполняется из БД при старте и обновляется сервисом фильмов
+ * при изменении лайков и фильмов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityIndex {
+    /**
+     * Порядок фильмов в рейтинге: по убыванию лайков, при равенстве - по возрастанию идентификатора
+     */
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry entry) -> -entry.likes)
+            .thenComparingLong(entry -> entry.filmId);
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeDao likeDao;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> overall = new TreeSet<>(ORDER);
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+    private final Map<Long, NavigableSet<Entry>> byGenreAndYear = new HashMap<>();
+
+    /**
+     * Метод заполняет индекс данными из таблиц film и film_genre, количество лайков берется одним
+     * сгруппированным запросом {@link LikeDao#getLikesCount()}
+     */
+    @PostConstruct
+    public void load() {
+        Map<Long, Entry> loaded = new HashMap<>();
+        LongIntHashMap likes = likeDao.getLikesCount();
+        jdbcTemplate.query("SELECT film_id, release_date FROM film", rs -> {
+            Date releaseDate = rs.getDate("release_date");
+            Entry entry = new Entry(rs.getLong("film_id"), releaseDate == null ? null
+                    : releaseDate.toLocalDate().getYear(), new HashSet<>());
+            entry.likes = likes.get(entry.filmId);
+            loaded.put(entry.filmId, entry);
+        });
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genre", rs -> {
+            Entry entry = loaded.get(rs.getLong("film_id"));
+            if (entry != null) {
+                entry.genres.add(rs.getInt("genre_id"));
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            overall.clear();
+            byGenre.clear();
+            byYear.clear();
+            byGenreAndYear.clear();
+            loaded.values().forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности заполнен, фильмов: {}", loaded.size());
+    }
+
+    /**
+     * Метод добавляет фильм в индекс или обновляет его жанры и год релиза, сохраняя количество лайков
+     *
+     * @param film фильм с заполненными жанрами
+     */
+    public void putFilm(Film film) {
+        Set<Integer> genres = new HashSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genres.add(genre.getId());
+            }
+        }
+        Entry entry = new Entry(film.getId(), film.getReleaseDate() == null ? null
+                : film.getReleaseDate().getYear(), genres);
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(film.getId());
+            if (previous != null) {
+                entry.likes = previous.likes;
+                unlink(previous);
+            }
+            link(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет фильм из индекса
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                unlink(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод увеличивает количество лайков фильма на единицу
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void addLike(Long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    /**
+     * Метод уменьшает количество лайков фильма на единицу
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeLike(Long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    /**
+     * Метод возвращает количество лайков фильма по данным индекса
+     *
+     * @param filmId идентификатор фильма
+     * @return возвращает количество лайков или 0, если фильма нет в индексе
+     */
+    public int getLikes(Long filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает идентификаторы самых популярных фильмов
+     *
+     * @param count количество фильмов в топе
+     * @return возвращает список идентификаторов фильмов по убыванию популярности
+     */
+    public List<Long> getTop(int count) {
+        lock.readLock().lock();
+        try {
+            return top(overall, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает идентификаторы самых популярных фильмов жанра
+     *
+     * @param count   количество фильмов в топе
+     * @param genreId идентификатор жанра
+     * @return возвращает список идентификаторов фильмов по убыванию популярности
+     */
+    public List<Long> getTopByGenre(int count, int genreId) {
+        lock.readLock().lock();
+        try {
+            return top(byGenre.get(genreId), count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает идентификаторы самых популярных фильмов года
+     *
+     * @param count количество фильмов в топе
+     * @param year  год релиза
+     * @return возвращает список идентификаторов фильмов по убыванию популярности
+     */
+    public List<Long> getTopByYear(int count, int year) {
+        lock.readLock().lock();
+        try {
+            return top(byYear.get(year), count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает идентификаторы самых популярных фильмов жанра за год
+     *
+     * @param count   количество фильмов в топе
+     * @param genreId идентификатор жанра
+     * @param year    год релиза
+     * @return возвращает список идентификаторов фильмов по убыванию популярности
+     */
+    public List<Long> getTopByGenreAndYear(int count, int genreId, int year) {
+        lock.readLock().lock();
+        try {
+            return top(byGenreAndYear.get(genreAndYear(genreId, year)), count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void changeLikes(Long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                unlink(entry);
+                entry.likes += delta;
+                link(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Long> top(NavigableSet<Entry> ranking, int count) {
+        if (ranking == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Entry entry : ranking) {
+            if (ids.size() >= count) {
+                break;
+            }
+            ids.add(entry.filmId);
+        }
+        return ids;
+    }
+
+    private void link(Entry entry) {
+        entries.put(entry.filmId, entry);
+        overall.add(entry);
+        for (Integer genreId : entry.genres) {
+            byGenre.computeIfAbsent(genreId, key -> new TreeSet<>(ORDER)).add(entry);
+            if (entry.year != null) {
+                byGenreAndYear.computeIfAbsent(genreAndYear(genreId, entry.year), key -> new TreeSet<>(ORDER))
+                        .add(entry);
+            }
+        }
+        if (entry.year != null) {
+            byYear.computeIfAbsent(entry.year, key -> new TreeSet<>(ORDER)).add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        entries.remove(entry.filmId);
+        overall.remove(entry);
+        for (Integer genreId : entry.genres) {
+            byGenre.get(genreId).remove(entry);
+            if (entry.year != null) {
+                byGenreAndYear.get(genreAndYear(genreId, entry.year)).remove(entry);
+            }
+        }
+        if (entry.year != null) {
+            byYear.get(entry.year).remove(entry);
+        }
+    }
+
+    private static long genreAndYear(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Запись индекса о фильме
+     */
+    private static final class Entry {
+        private final long filmId;
+        private final Integer year;
+        private final Set<Integer> genres;
+        private int likes;
+
+        private Entry(long filmId, Integer year, Set<Integer> genres) {
+            this.filmId = filmId;
+            this.year = year;
+            this.genres = genres;
+        }
+    }
+}
@@ -7,8 +7,11 @@ DROP TABLE IF EXISTS users CASCADE;
 DROP TABLE IF EXISTS friends CASCADE;
 DROP TABLE IF EXISTS likes CASCADE;
 DROP TABLE IF EXISTS reviews CASCADE;
+DROP TABLE IF EXISTS film_reviews CASCADE;
 DROP TABLE IF EXISTS directors CASCADE;
 DROP TABLE IF EXISTS film_directors CASCADE;
+DROP TABLE IF EXISTS recommendations CASCADE;
+DROP TABLE IF EXISTS timeline CASCADE;
 
 CREATE TABLE IF NOT EXISTS mpa (
     mpa_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -21,9 +24,12 @@ CREATE TABLE IF NOT EXISTS film (
     description VARCHAR(200),
     release_date DATE,
     duration INTEGER CHECK (duration > 0),
-    mpa_id INTEGER REFERENCES mpa (mpa_id) ON DELETE RESTRICT
+    mpa_id INTEGER REFERENCES mpa (mpa_id) ON DELETE RESTRICT,
+    likes_count INTEGER NOT NULL DEFAULT 0
 );
 
+CREATE INDEX IF NOT EXISTS film_likes_count_idx ON film (likes_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS genre (
     genre_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     genre_name VARCHAR NOT NULL UNIQUE
@@ -31,9 +37,12 @@ CREATE TABLE IF NOT EXISTS genre (
 
 CREATE TABLE IF NOT EXISTS film_genre (
     film_id BIGINT  NOT NULL REFERENCES film (film_id) ON DELETE CASCADE,
-    genre_id INTEGER NOT NULL REFERENCES genre (genre_id) ON DELETE RESTRICT
+    genre_id INTEGER NOT NULL REFERENCES genre (genre_id) ON DELETE RESTRICT,
+    PRIMARY KEY (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_genre_genre_idx ON film_genre (genre_id, film_id);
+
 CREATE TABLE IF NOT EXISTS users (
     user_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     email VARCHAR NOT NULL UNIQUE,
@@ -49,11 +58,16 @@ CREATE TABLE IF NOT EXISTS friends (
     PRIMARY KEY (user_id, friend_id)
 );
 
+CREATE INDEX IF NOT EXISTS friends_friend_idx ON friends (friend_id, user_id);
+
 CREATE TABLE IF NOT EXISTS likes (
     film_id BIGINT NOT NULL REFERENCES film (film_id) ON DELETE CASCADE,
-    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+
 CREATE TABLE IF NOT EXISTS reviews (
     review_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     content VARCHAR NOT NULL,
@@ -63,6 +77,9 @@ CREATE TABLE IF NOT EXISTS reviews (
     useful INTEGER NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews (useful DESC, review_id);
+CREATE INDEX IF NOT EXISTS reviews_film_useful_idx ON reviews (film_id, useful DESC, review_id);
+
 CREATE TABLE IF NOT EXISTS film_reviews (
     review_id INTEGER NOT NULL REFERENCES reviews (review_id) ON DELETE CASCADE,
     user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
@@ -81,6 +98,8 @@ CREATE TABLE IF NOT EXISTS film_directors (
     PRIMARY KEY (director_id, film_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_directors_film_idx ON film_directors (film_id, director_id);
+
 CREATE TABLE IF NOT EXISTS feed (
     time TIMESTAMP NOT NULL,
     user_id INTEGER NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
@@ -89,4 +108,21 @@ CREATE TABLE IF NOT EXISTS feed (
     event_id INTEGER NOT NULL AUTO_INCREMENT,
     entity_id INTEGER NOT NULL,
     CONSTRAINT event_id_pk PRIMARY KEY (event_id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS feed_user_idx ON feed (user_id, event_id);
+
+CREATE TABLE IF NOT EXISTS recommendations (
+    user_id BIGINT NOT NULL,
+    position INTEGER NOT NULL,
+    similar_user_id BIGINT NOT NULL,
+    film_id BIGINT,
+    computed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, position)
+);
+
+CREATE TABLE IF NOT EXISTS timeline (
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    event_id INTEGER NOT NULL REFERENCES feed (event_id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, event_id)
+);
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.assistant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedIdsTest {
+    @Test
+    void insertAndRemoveKeepOrder() {
+        long[] ids = SortedIds.EMPTY;
+        for (long id : new long[]{5, 1, 9, 3, 7}) {
+            ids = SortedIds.insert(ids, id);
+        }
+        assertArrayEquals(new long[]{1, 3, 5, 7, 9}, ids);
+        assertSame(ids, SortedIds.insert(ids, 5));
+        assertSame(ids, SortedIds.remove(ids, 4));
+        assertArrayEquals(new long[]{3, 5, 7}, SortedIds.remove(SortedIds.remove(ids, 1), 9));
+        assertTrue(SortedIds.contains(ids, 7));
+        assertFalse(SortedIds.contains(SortedIds.remove(ids, 7), 7));
+        assertArrayEquals(SortedIds.EMPTY, SortedIds.remove(new long[]{1}, 1));
+    }
+
+    @Test
+    void mergesMatchSetOperations() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            TreeSet<Long> first = randomSet(random);
+            TreeSet<Long> second = randomSet(random);
+            TreeSet<Long> common = new TreeSet<>(first);
+            common.retainAll(second);
+            TreeSet<Long> rest = new TreeSet<>(first);
+            rest.removeAll(second);
+
+            assertArrayEquals(toArray(common), SortedIds.intersect(toArray(first), toArray(second)));
+            assertArrayEquals(toArray(common), SortedIds.intersect(toArray(second), toArray(first)));
+            assertArrayEquals(toArray(rest), SortedIds.difference(toArray(first), toArray(second)));
+        }
+        assertEquals(0, SortedIds.intersect(SortedIds.EMPTY, new long[]{1, 2}).length);
+        assertArrayEquals(new long[]{1, 2}, SortedIds.difference(new long[]{1, 2}, SortedIds.EMPTY));
+    }
+
+    private static TreeSet<Long> randomSet(Random random) {
+        TreeSet<Long> ids = new TreeSet<>();
+        int size = random.nextInt(20);
+        for (int i = 0; i < size; i++) {
+            ids.add((long) random.nextInt(30));
+        }
+        return ids;
+    }
+
+    private static long[] toArray(TreeSet<Long> ids) {
+        return Arrays.stream(ids.toArray(new Long[0])).mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:film-service;DB_CLOSE_DELAY=-1")
+class FilmDbServiceTest {
+    @Autowired
+    private FilmDbService filmService;
+    @Autowired
+    private UserDbService userService;
+    @Autowired
+    private DirectorDbService directorService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hydratedListsMatchSingleFilm() {
+        Director director = directorService.addDirector(new Director(null, "Режиссер списков"));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Film film = film("Список " + i, i);
+            film.setGenres(new HashSet<>(Set.of(new Genre(i), new Genre(i + 1))));
+            if (i % 2 == 0) {
+                film.setDirectors(Set.of(director));
+            }
+            ids.add(filmService.addFilm(film).getId());
+        }
+
+        Map<Long, Film> all = filmService.getFilms().stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        List<Film> byIds = filmService.getFilmsByIds(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            Film single = filmService.getFilmById(ids.get(i));
+            assertEquals(2, single.getGenres().size());
+            assertEquals(single, all.get(ids.get(i)));
+            assertEquals(single, byIds.get(i));
+        }
+        assertEquals(2, filmService.getFilmById(ids.get(1)).getMpa().getId());
+        assertEquals("PG", filmService.getFilmById(ids.get(1)).getMpa().getName());
+        assertEquals(Set.of(director), filmService.getFilmById(ids.get(1)).getDirectors());
+    }
+
+    @Test
+    void filmPagesCoverCatalogOnce() {
+        for (int i = 0; i < 7; i++) {
+            filmService.addFilm(film("Страница " + i, 1));
+        }
+        List<Long> expected = ids(filmService.getFilms());
+
+        List<Long> paged = new ArrayList<>();
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = filmService.getFilmsPage(afterId, 3);
+            assertTrue(page.size() <= 3);
+            paged.addAll(ids(page));
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 3);
+        assertEquals(expected, paged);
+
+        List<Long> streamed = new ArrayList<>();
+        filmService.streamFilms(film -> streamed.add(film.getId()));
+        assertEquals(expected, streamed);
+
+        Long last = expected.get(expected.size() - 1);
+        assertTrue(filmService.getFilmsPage(last, 3).isEmpty());
+        assertEquals(List.of(last), ids(filmService.getFilmsPage(last - 1, 3)));
+        assertThrows(ValidationException.class, () -> filmService.getFilmsPage(0L, 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.getFilmsPage(0L, FilmDbService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void popularFilmsFollowLikesInDb() {
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            users.add(userService.createUser(new User("popular" + i + "@mail.ru", "popular" + i, "popular" + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        List<Long> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(filmService.addFilm(film("Популярный " + i, 1)).getId());
+        }
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j <= i; j++) {
+                filmService.addLike(users.get(j), films.get(i));
+            }
+        }
+        filmService.deleteLike(users.get(0), films.get(3));
+        filmService.deleteLike(users.get(1), films.get(3));
+
+        assertEquals(topByDb(10), ids(filmService.getPopularFilms(10, Optional.empty(), Optional.empty())));
+        assertEquals(List.of(films.get(2), films.get(1), films.get(3)),
+                ids(filmService.getPopularFilms(3, Optional.empty(), Optional.empty())));
+    }
+
+    @Test
+    void cachedFilmFollowsUpdate() {
+        Film film = filmService.addFilm(film("До обновления", 1));
+        assertEquals("До обновления", filmService.getFilmById(film.getId()).getName());
+
+        Film update = film("После обновления", 3);
+        update.setId(film.getId());
+        update.setGenres(new HashSet<>(Set.of(new Genre(4))));
+        filmService.updateFilm(update);
+
+        Film cached = filmService.getFilmById(film.getId());
+        assertEquals("После обновления", cached.getName());
+        assertEquals(3, cached.getMpa().getId());
+        assertEquals(Set.of(4), cached.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        assertEquals(cached, filmService.getFilmsByIds(List.of(film.getId())).get(0));
+    }
+
+    private List<Long> topByDb(int count) {
+        return jdbcTemplate.queryForList("SELECT f.film_id FROM film AS f " +
+                "LEFT JOIN likes AS l ON l.film_id = f.film_id GROUP BY f.film_id " +
+                "ORDER BY COUNT(l.user_id) DESC, f.film_id LIMIT ?", Long.class, count);
+    }
+
+    private static Film film(String name, int mpaId) {
+        Film film = new Film(name, "Описание", LocalDate.of(2000, 1, 1), 100);
+        film.setMpa(new Mpa(mpaId, null));
+        return film;
+    }
+
+    private static List<Long> ids(Iterable<Film> films) {
+        List<Long> ids = new ArrayList<>();
+        films.forEach(film -> ids.add(film.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.SortBy;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:inmemory-storage;DB_CLOSE_DELAY=-1")
+class InMemoryStorageTest {
+    @Autowired
+    private FilmDbService filmService;
+    @Autowired
+    private UserDbService userService;
+    @Autowired
+    private ReviewDbService reviewService;
+    @Autowired
+    private DirectorDbService directorService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void invalidReferencesDoNotLeaveFilm() {
+        int before = filmService.getFilms().size();
+        Film badMpa = film("Без рейтинга");
+        badMpa.setMpa(new Mpa(100, null));
+        assertThrows(NotFoundException.class, () -> filmService.addFilm(badMpa));
+        Film badGenre = film("Без жанра");
+        badGenre.setGenres(new HashSet<>(Set.of(new Genre(100))));
+        assertThrows(NotFoundException.class, () -> filmService.addFilm(badGenre));
+
+        assertEquals(before, filmService.getFilms().size());
+        assertEquals(before, count("SELECT COUNT(*) FROM film"));
+    }
+
+    @Test
+    void deletedFilmTakesItsLinksWithIt() {
+        User user = user("cascade");
+        Film film = film("Каскад");
+        film.setGenres(new HashSet<>(Set.of(new Genre(1), new Genre(2))));
+        film = filmService.addFilm(film);
+        Long filmId = film.getId();
+        assertEquals(2, filmService.getFilmById(filmId).getGenres().size());
+        filmService.addLike(user.getId(), filmId);
+        Integer reviewId = reviewService.addReview(new Review("Отзыв", true, user.getId(), filmId)).getReviewId();
+        reviewService.addLikeToReview(reviewId, user.getId());
+
+        filmService.deleteFilm(filmId);
+
+        assertThrows(NotFoundException.class, () -> filmService.getFilmById(filmId));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_genre WHERE film_id = " + filmId));
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE film_id = " + filmId));
+        assertEquals(0, count("SELECT COUNT(*) FROM reviews WHERE film_id = " + filmId));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_reviews WHERE review_id = " + reviewId));
+        assertTrue(filmService.getFilmsByUser(user.getId()).isEmpty());
+    }
+
+    @Test
+    void deletedDirectorIsRemovedFromFilms() {
+        Director director = directorService.addDirector(new Director(null, "Удаляемый режиссер"));
+        Director other = directorService.addDirector(new Director(null, "Другой режиссер"));
+        Film film = film("Фильм режиссеров");
+        film.setDirectors(Set.of(director, other));
+        Long filmId = filmService.addFilm(film).getId();
+        assertEquals(1, filmService.getDirectorsFilms(director.getId(), SortBy.YEAR).size());
+
+        directorService.deleteDirectorById(director.getId());
+
+        assertEquals(Set.of(other), filmService.getFilmById(filmId).getDirectors());
+        assertEquals(0, count("SELECT COUNT(*) FROM film_directors WHERE director_id = " + director.getId()));
+        assertThrows(NotFoundException.class,
+                () -> filmService.getDirectorsFilms(director.getId(), SortBy.LIKES));
+        assertEquals(List.of(filmId), ids(filmService.getDirectorsFilms(other.getId(), SortBy.LIKES)));
+    }
+
+    @Test
+    void mutualFriendsFollowDeletes() {
+        User first = user("first");
+        User second = user("second");
+        User a = user("a");
+        User b = user("b");
+        User c = user("c");
+        for (User friend : List.of(c, a, b)) {
+            userService.addFriend(first.getId(), friend.getId());
+        }
+        for (User friend : List.of(b, c)) {
+            userService.addFriend(second.getId(), friend.getId());
+        }
+        assertEquals(List.of(b.getId(), c.getId()),
+                userIds(userService.getMutualFriends(first.getId(), second.getId())));
+
+        userService.deleteUser(b.getId());
+
+        assertEquals(List.of(c.getId()), userIds(userService.getMutualFriends(first.getId(), second.getId())));
+        assertEquals(List.of(a.getId(), c.getId()), userIds(userService.getFriends(first.getId())));
+        assertFalse(userService.isContains(b.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE user_id = " + b.getId()));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private User user(String login) {
+        return userService.createUser(new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1)));
+    }
+
+    private static Film film(String name) {
+        Film film = new Film(name, "Описание", LocalDate.of(2000, 1, 1), 100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private static List<Long> userIds(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
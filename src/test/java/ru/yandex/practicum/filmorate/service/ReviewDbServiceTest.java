@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:review-votes;DB_CLOSE_DELAY=-1")
+class ReviewDbServiceTest {
+    private static final int USERS = 100;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ReviewDbService reviewService;
+    @Autowired
+    private UserDbService userService;
+    @Autowired
+    private FilmDbService filmService;
+
+    @Test
+    void concurrentVotesAreNotLost() throws Exception {
+        Film film = new Film("Фильм", "Описание", LocalDate.of(2000, 1, 1), 100);
+        film.setMpa(new Mpa(1, null));
+        film = filmService.addFilm(film);
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(userService.createUser(new User("user" + i + "@mail.ru", "user" + i, "user" + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        Integer reviewId = reviewService.addReview(new Review("Отзыв", true, userIds.get(0), film.getId()))
+                .getReviewId();
+
+        List<Callable<Void>> votes = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            Long userId = userIds.get(i);
+            boolean like = i % 2 == 0;
+            votes.add(() -> {
+                reviewService.addLikeToReview(reviewId, userId);
+                reviewService.addDislikeToReview(reviewId, userId);
+                if (like) {
+                    reviewService.addLikeToReview(reviewId, userId);
+                } else {
+                    reviewService.deleteDislikeFromReview(reviewId, userId);
+                }
+                return null;
+            });
+        }
+        run(votes);
+
+        List<Callable<Void>> duplicates = new ArrayList<>();
+        for (int i = 1; i < USERS; i += 2) {
+            Long userId = userIds.get(i);
+            duplicates.add(() -> {
+                reviewService.addLikeToReview(reviewId, userId);
+                return null;
+            });
+            duplicates.add(() -> {
+                reviewService.addLikeToReview(reviewId, userId);
+                return null;
+            });
+        }
+        run(duplicates);
+
+        assertEquals(USERS, reviewService.getReviewById(reviewId).getUseful());
+    }
+
+    @Test
+    void reviewPagesFollowUsefulOrder() {
+        Film film = new Film("Фильм с отзывами", "Описание", LocalDate.of(2000, 1, 1), 100);
+        film.setMpa(new Mpa(1, null));
+        Long filmId = filmService.addFilm(film).getId();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            userIds.add(userService.createUser(new User("pager" + i + "@mail.ru", "pager" + i, "pager" + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        List<Integer> reviewIds = new ArrayList<>();
+        for (Long userId : userIds) {
+            reviewIds.add(reviewService.addReview(new Review("Отзыв", true, userId, filmId)).getReviewId());
+        }
+        reviewService.addLikeToReview(reviewIds.get(1), userIds.get(0));
+        reviewService.addLikeToReview(reviewIds.get(1), userIds.get(2));
+        reviewService.addDislikeToReview(reviewIds.get(2), userIds.get(0));
+        reviewService.addLikeToReview(reviewIds.get(3), userIds.get(0));
+        reviewService.addLikeToReview(reviewIds.get(3), userIds.get(1));
+
+        List<Integer> expected = List.of(reviewIds.get(1), reviewIds.get(3), reviewIds.get(0), reviewIds.get(4),
+                reviewIds.get(2));
+        for (int count = 1; count <= expected.size() + 1; count++) {
+            assertEquals(expected, pageThrough(filmId, count), "размер страницы " + count);
+        }
+
+        List<Integer> all = pageThrough(-1L, 2);
+        assertEquals(all.size(), new HashSet<>(all).size());
+        assertTrue(all.containsAll(expected));
+        assertThrows(ValidationException.class, () -> reviewService.getReviews(filmId, null, null, 0));
+        assertThrows(ValidationException.class, () -> reviewService.getReviews(filmId, 0, null, 10));
+    }
+
+    private List<Integer> pageThrough(Long filmId, int count) {
+        List<Integer> ids = new ArrayList<>();
+        List<Review> page = reviewService.getReviews(filmId, null, null, count);
+        Review previous = null;
+        while (!page.isEmpty()) {
+            for (Review review : page) {
+                if (previous != null) {
+                    int useful = review.getUseful();
+                    int previousUseful = previous.getUseful();
+                    assertTrue(useful < previousUseful
+                            || useful == previousUseful && review.getReviewId() > previous.getReviewId());
+                }
+                ids.add(review.getReviewId());
+                previous = review;
+            }
+            if (page.size() < count) {
+                break;
+            }
+            page = reviewService.getReviews(filmId, previous.getUseful(), previous.getReviewId(), count);
+        }
+        return ids;
+    }
+
+    private void run(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:user-service;DB_CLOSE_DELAY=-1")
+class UserDbServiceTest {
+    @Autowired
+    private UserDbService userService;
+    @Autowired
+    private FilmDbService filmService;
+    @Autowired
+    private ReviewDbService reviewService;
+    @Autowired
+    private DirectorDbService directorService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void generatedIdsMatchStoredRows() {
+        User user = user("generated");
+        assertEquals(user, userService.getUserById(user.getId()));
+        assertEquals("generated", jdbcTemplate.queryForObject("SELECT login FROM users WHERE user_id = ?",
+                String.class, user.getId()));
+
+        Film film = filmService.addFilm(film("Сгенерированный"));
+        assertEquals("Сгенерированный", jdbcTemplate.queryForObject("SELECT name FROM film WHERE film_id = ?",
+                String.class, film.getId()));
+
+        Director director = directorService.addDirector(new Director(null, "Сгенерированный режиссер"));
+        assertEquals(director, directorService.getDirectorById(director.getId()));
+
+        Review review = reviewService.addReview(new Review("Отзыв", true, user.getId(), film.getId()));
+        assertEquals(review.getContent(), reviewService.getReviewById(review.getReviewId()).getContent());
+        assertEquals(user.getId(), reviewService.getReviewById(review.getReviewId()).getUserId());
+
+        User next = user("generated-next");
+        assertTrue(next.getId() > user.getId());
+    }
+
+    @Test
+    void feedPagesCoverFeedOnce() {
+        User user = user("feed");
+        for (int i = 0; i < 7; i++) {
+            filmService.addLike(user.getId(), filmService.addFilm(film("Лента " + i)).getId());
+        }
+        List<Long> expected = eventIds(userService.getFeeds(user.getId()));
+        assertEquals(7, expected.size());
+        assertEquals(expected, jdbcTemplate.queryForList("SELECT event_id FROM feed WHERE user_id = ? " +
+                "ORDER BY event_id", Long.class, user.getId()));
+
+        List<Long> paged = new ArrayList<>();
+        long afterEventId = 0;
+        List<Feed> page;
+        do {
+            page = userService.getFeedsPage(user.getId(), afterEventId, 3);
+            paged.addAll(eventIds(page));
+            if (!page.isEmpty()) {
+                afterEventId = page.get(page.size() - 1).getEventId();
+            }
+        } while (page.size() == 3);
+        assertEquals(expected, paged);
+
+        List<Long> streamed = new ArrayList<>();
+        userService.streamFeeds(user.getId(), feed -> streamed.add(feed.getEventId()));
+        assertEquals(expected, streamed);
+
+        Long last = expected.get(expected.size() - 1);
+        assertTrue(userService.getFeedsPage(user.getId(), last, 3).isEmpty());
+        assertThrows(ValidationException.class, () -> userService.getFeedsPage(user.getId(), 0L, 0));
+        assertThrows(ValidationException.class,
+                () -> userService.getFeedsPage(user.getId(), 0L, UserDbService.MAX_FEED_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void friendListsMatchSingleUsers() {
+        User user = user("friends");
+        User other = user("friends-other");
+        List<User> friends = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            friends.add(user("friend" + i));
+        }
+        assertTrue(userService.getFriends(user.getId()).isEmpty());
+        for (int i = friends.size() - 1; i >= 0; i--) {
+            userService.addFriend(user.getId(), friends.get(i).getId());
+        }
+        userService.addFriend(other.getId(), friends.get(1).getId());
+        userService.addFriend(other.getId(), friends.get(3).getId());
+        userService.addFriend(other.getId(), user.getId());
+
+        List<User> loaded = userService.getFriends(user.getId());
+        loaded.sort(Comparator.comparing(User::getId));
+        assertEquals(friends, loaded);
+        for (User friend : loaded) {
+            assertEquals(userService.getUserById(friend.getId()), friend);
+        }
+        List<User> mutual = userService.getMutualFriends(user.getId(), other.getId());
+        mutual.sort(Comparator.comparing(User::getId));
+        assertEquals(List.of(friends.get(1), friends.get(3)), mutual);
+
+        userService.deleteFriend(user.getId(), friends.get(3).getId());
+        assertEquals(List.of(friends.get(1)), userService.getMutualFriends(user.getId(), other.getId()));
+        List<User> otherFriends = userService.getFriends(other.getId());
+        otherFriends.sort(Comparator.comparing(User::getId));
+        assertEquals(List.of(user, friends.get(1), friends.get(3)), otherFriends);
+    }
+
+    private User user(String login) {
+        return userService.createUser(new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1)));
+    }
+
+    private static Film film(String name) {
+        Film film = new Film(name, "Описание", LocalDate.of(2000, 1, 1), 100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+
+    private static List<Long> eventIds(Iterable<Feed> feeds) {
+        List<Long> ids = new ArrayList<>();
+        feeds.forEach(feed -> ids.add(feed.getEventId()));
+        return ids;
+    }
+}
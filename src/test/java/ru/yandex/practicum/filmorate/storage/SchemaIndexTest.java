@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:schema-index;DB_CLOSE_DELAY=-1")
+class SchemaIndexTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reviewPagesUseUsefulIndexes() {
+        assertUses("REVIEWS_USEFUL_IDX", "SELECT review_id, useful FROM reviews " +
+                "WHERE useful <= 0 AND (useful < 0 OR review_id > 5) ORDER BY useful DESC, review_id LIMIT 10");
+        assertUses("REVIEWS_FILM_USEFUL_IDX", "SELECT review_id, useful FROM reviews " +
+                "WHERE film_id = 1 AND useful <= 0 AND (useful < 0 OR review_id > 5) " +
+                "ORDER BY useful DESC, review_id LIMIT 10");
+    }
+
+    @Test
+    void feedPagesUseUserIndex() {
+        assertUses("FEED_USER_IDX", "SELECT * FROM feed WHERE user_id = 1 AND event_id > 0 " +
+                "ORDER BY event_id LIMIT 10");
+    }
+
+    @Test
+    void reverseLookupsUseSecondaryIndexes() {
+        assertUses("FRIENDS_FRIEND_IDX", "SELECT user_id FROM friends WHERE friend_id = 1");
+        assertUses("LIKES_USER_IDX", "SELECT film_id FROM likes WHERE user_id = 1");
+        assertUses("FILM_GENRE_GENRE_IDX", "SELECT film_id FROM film_genre WHERE genre_id = 1");
+    }
+
+    @Test
+    void hydrationLinksAreNotScanned() {
+        assertNotScanned("SELECT film_id, genre_id FROM film_genre WHERE film_id IN (1, 2, 3) " +
+                "ORDER BY film_id, genre_id");
+        assertNotScanned("SELECT film_id, director_id FROM film_directors WHERE film_id IN (1, 2, 3) " +
+                "ORDER BY film_id, director_id");
+    }
+
+    private void assertUses(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains("PUBLIC." + index), plan);
+    }
+
+    private void assertNotScanned(String sql) {
+        String plan = explain(sql);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmSearchIndexTest {
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmSearchIndex(null);
+        index.putDirector(new Director(1, "Андрей Тарковский"));
+        index.putDirector(new Director(2, "Christopher Nolan"));
+        index.putFilm(film(1L, "Сталкер", 1));
+        index.putFilm(film(2L, "Солярис", 1));
+        index.putFilm(film(3L, "Interstellar", 2));
+        index.putFilm(film(4L, "Stalker Returns", 2));
+    }
+
+    @Test
+    void findsSubstringInTitleIgnoringCase() {
+        assertEquals(Set.of(3L), index.search("STELL", true, false).keySet());
+        assertEquals(Set.of(4L), index.search("alker r", true, false).keySet());
+        assertEquals(Set.of(1L), index.search("СТАЛ", true, false).keySet());
+        assertEquals(Set.of(1L), index.search("лкер", true, false).keySet());
+    }
+
+    @Test
+    void requiresEveryTrigramOfQuery() {
+        // "стаярис" shares trigrams with both "сталкер" and "солярис", but is not a substring of either
+        assertTrue(index.search("стаярис", true, false).isEmpty());
+        assertTrue(index.search("stellark", true, false).isEmpty());
+    }
+
+    @Test
+    void findsByDirectorAndRanksExactMatchHigher() {
+        assertEquals(Set.of(1L, 2L), index.search("тарков", false, true).keySet());
+        Map<Long, Integer> result = index.search("сталкер", true, true);
+        assertEquals(Set.of(1L), result.keySet());
+        assertTrue(index.search("солярис", true, false).get(2L) > index.search("соляр", true, false).get(2L));
+    }
+
+    @Test
+    void shortQueryScansAllTitles() {
+        assertEquals(Set.of(1L, 2L), index.search("С", true, false).keySet());
+    }
+
+    @Test
+    void removedDirectorIsNotFound() {
+        index.removeDirector(1);
+        assertTrue(index.search("тарков", false, true).isEmpty());
+        index.putFilm(film(1L, "Сталкер", 2));
+        assertEquals(Set.of(1L, 3L, 4L), index.search("nolan", false, true).keySet());
+    }
+
+    private static Film film(Long id, String name, Integer directorId) {
+        Film film = new Film(name, "Описание", LocalDate.of(1979, 5, 25), 160);
+        film.setId(id);
+        film.setDirectors(Set.of(new Director(directorId, null)));
+        return film;
+    }
+}